@@ -0,0 +1,12 @@
+package de.unikn.widening.base;
+
+/**
+ * A {@link MergeableSelector} whose state can be updated by several threads at once.
+ * Calculators create a single state per level that all refinement workers accumulate into,
+ * so no states have to be merged and the global selection only reads the shared state.
+ *
+ * @param <A> the type of the selection state
+ */
+public interface ConcurrentSelector<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>, A>
+    extends MergeableSelector<S,T,C,A> {
+}
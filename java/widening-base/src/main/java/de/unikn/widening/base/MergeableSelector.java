@@ -0,0 +1,39 @@
+package de.unikn.widening.base;
+
+/**
+ * A {@link WideningSelector} whose selection is built up in a mutable state that candidates are added to
+ * one by one. States created by different threads can be merged, so the selection of a level can be
+ * computed as a parallel tree reduction instead of re-scanning all locally selected candidates on one thread.
+ * Accumulating candidates into a state and finishing it has to select the same candidates as
+ * {@link #selectLocal(Iterable)}.
+ *
+ * @param <A> the type of the selection state
+ */
+public interface MergeableSelector<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>, A>
+    extends WideningSelector<S,T,C> {
+    /**
+     * @return a new state that has not selected anything yet
+     */
+    A createState();
+
+    /**
+     * Adds a candidate to a state.
+     * @param state the state to add the candidate to
+     * @param candidate the candidate
+     */
+    void accumulate(A state, C candidate);
+
+    /**
+     * Merges two states. The result selects as if all candidates of both states had been added to one state.
+     * @param left the first state, may be modified and returned
+     * @param right the second state, may be modified and returned
+     * @return the merged state
+     */
+    A merge(A left, A right);
+
+    /**
+     * @param state the state to get the selection for
+     * @return the candidates selected by the state
+     */
+    Iterable<C> finish(A state);
+}
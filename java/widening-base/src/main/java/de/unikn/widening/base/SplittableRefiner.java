@@ -0,0 +1,27 @@
+package de.unikn.widening.base;
+
+/**
+ * A {@link WideningRefiner} whose candidates for a single model can be created in disjoint index ranges.
+ * This allows several workers to share the refinement of one model with a huge branching factor.
+ */
+public interface SplittableRefiner<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>>
+    extends WideningRefiner<S,T,C> {
+    /**
+     * Returns the size of the index range the candidates of a model are created from.
+     * Not every index has to yield a candidate.
+     * @param model the model to refine
+     * @return the exclusive upper bound of the candidate indices
+     */
+    int size(T model);
+
+    /**
+     * Refines a model, only creating the candidates with an index in the given range.
+     * The ranges <code>[0, size)</code> of all calls for a model together yield the same candidates
+     * as {@link #refine(WideningModel)}.
+     * @param model the model to refine
+     * @param from the first candidate index, inclusive
+     * @param to the last candidate index, exclusive
+     * @return the candidates in the given index range
+     */
+    Iterable<C> refine(T model, int from, int to);
+}
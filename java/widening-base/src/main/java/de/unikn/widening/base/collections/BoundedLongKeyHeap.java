@@ -0,0 +1,147 @@
+package de.unikn.widening.base.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the k elements with the smallest primitive keys, in a binary max-heap of parallel key and element
+ * arrays. The largest kept key is at the top, so a candidate that cannot enter is rejected by one comparison
+ * with {@link #peekKey()}, without boxing, comparators or rebalancing.
+ *
+ * @param <E> the type of the elements
+ */
+public class BoundedLongKeyHeap<E> {
+
+    private final long[] m_keys;
+    private final Object[] m_elements;
+    private int m_size;
+
+    /**
+     * Creates an empty heap.
+     * @param capacity the number of elements to keep
+     */
+    public BoundedLongKeyHeap(final int capacity) {
+        m_keys = new long[capacity];
+        m_elements = new Object[capacity];
+    }
+
+    /**
+     * @return the number of kept elements
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * @return true if as many elements are kept as the capacity allows
+     */
+    public boolean isFull() {
+        return m_size == m_keys.length;
+    }
+
+    /**
+     * @return the largest kept key, undefined if the heap is empty
+     */
+    public long peekKey() {
+        return m_keys[0];
+    }
+
+    /**
+     * @param i a position between 0 and {@link #size()}, in no particular order
+     * @return the key at the position
+     */
+    public long keyAt(final int i) {
+        return m_keys[i];
+    }
+
+    /**
+     * @param i a position between 0 and {@link #size()}, in no particular order
+     * @return the element at the position
+     */
+    @SuppressWarnings("unchecked")
+    public E elementAt(final int i) {
+        return (E) m_elements[i];
+    }
+
+    /**
+     * Adds an element if the heap is not full, otherwise replaces the element with the largest key by it.
+     * @param key the key of the element
+     * @param element the element
+     */
+    public void add(final long key, final E element) {
+        if (m_size < m_keys.length) {
+            siftUp(m_size++, key, element);
+        } else if (m_size > 0) {
+            siftDown(0, key, element);
+        }
+    }
+
+    /**
+     * Removes all elements.
+     */
+    public void clear() {
+        Arrays.fill(m_elements, 0, m_size, null);
+        m_size = 0;
+    }
+
+    /**
+     * @return the kept elements ordered by ascending key, elements with equal keys in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    public List<E> toSortedList() {
+        final long[] keys = Arrays.copyOf(m_keys, m_size);
+        final Object[] elements = Arrays.copyOf(m_elements, m_size);
+        // Insertion sort, the heap only holds a few elements
+        for (int i = 1; i < m_size; i++) {
+            final long key = keys[i];
+            final Object element = elements[i];
+            int j = i;
+            for (; j > 0 && keys[j - 1] > key; j--) {
+                keys[j] = keys[j - 1];
+                elements[j] = elements[j - 1];
+            }
+            keys[j] = key;
+            elements[j] = element;
+        }
+        final List<E> sorted = new ArrayList<>(m_size);
+        for (final Object element : elements) {
+            sorted.add((E) element);
+        }
+        return sorted;
+    }
+
+    private void siftUp(final int from, final long key, final E element) {
+        int i = from;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (m_keys[parent] >= key) {
+                break;
+            }
+            m_keys[i] = m_keys[parent];
+            m_elements[i] = m_elements[parent];
+            i = parent;
+        }
+        m_keys[i] = key;
+        m_elements[i] = element;
+    }
+
+    private void siftDown(final int from, final long key, final E element) {
+        int i = from;
+        final int half = m_size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < m_size && m_keys[child + 1] > m_keys[child]) {
+                child++;
+            }
+            if (key >= m_keys[child]) {
+                break;
+            }
+            m_keys[i] = m_keys[child];
+            m_elements[i] = m_elements[child];
+            i = child;
+        }
+        m_keys[i] = key;
+        m_elements[i] = element;
+    }
+}
@@ -0,0 +1,53 @@
+package de.unikn.widening.base.collections;
+
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Iterable that aborts the iteration with a {@link CancellationException} once a condition holds.
+ * The condition is checked before the first element and then only every few elements to keep the overhead low.
+ */
+public class CancellableIterable<T> implements Iterable<T> {
+
+    private static final int CHECK_INTERVAL = 256;
+
+    private final Iterable<T> m_iter;
+    private final BooleanSupplier m_cancelled;
+
+    /**
+     * Creates a new <code>CancellableIterable</code>.
+     * @param iter the iterable to wrap
+     * @param cancelled the condition that cancels the iteration
+     */
+    public CancellableIterable(final Iterable<T> iter, final BooleanSupplier cancelled) {
+        m_iter = iter;
+        m_cancelled = cancelled;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Iterator<T> iter = m_iter.iterator();
+        return new Iterator<T>() {
+            private int m_count = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (m_count++ % CHECK_INTERVAL == 0 && m_cancelled.getAsBoolean()) {
+                    throw new CancellationException();
+                }
+                return iter.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iter.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,335 @@
+package de.unikn.widening.base.collections;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@link IntBitmap} split into chunks of 2^16 values, in the style of Roaring bitmaps.
+ * Only chunks holding values are stored. A chunk with at most 4096 values is a sorted array of their
+ * lower 16 bits, a fuller chunk a bit vector of 2^16 bits, so no chunk takes more than 8 KiB and a sparse
+ * chunk two bytes per value. Adding a value copies only the chunk it falls into and the chunk directory,
+ * all other chunks are shared with this bitmap.
+ */
+public final class CompressedIntBitmap implements IntBitmap {
+
+    private static final CompressedIntBitmap EMPTY = new CompressedIntBitmap(new char[0], new Chunk[0], 0);
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int LOW_MASK = CHUNK_SIZE - 1;
+    // Above this many values a bit vector is smaller than a sorted array
+    private static final int ARRAY_LIMIT = 4096;
+
+    // The upper 16 bits of the values in each chunk, ascending
+    private final char[] m_keys;
+    private final Chunk[] m_chunks;
+    private final int m_cardinality;
+
+    private CompressedIntBitmap(final char[] keys, final Chunk[] chunks, final int cardinality) {
+        m_keys = keys;
+        m_chunks = chunks;
+        m_cardinality = cardinality;
+    }
+
+    /**
+     * @param bits the values of the bitmap
+     * @return a bitmap with the given values
+     */
+    public static CompressedIntBitmap of(final BitSet bits) {
+        if (bits.isEmpty()) {
+            return EMPTY;
+        }
+        final int numChunks = ((bits.length() - 1) >>> CHUNK_BITS) + 1;
+        char[] keys = new char[numChunks];
+        Chunk[] chunks = new Chunk[numChunks];
+        int n = 0;
+        final char[] values = new char[CHUNK_SIZE];
+        for (int v = bits.nextSetBit(0); v >= 0;) {
+            final int key = v >>> CHUNK_BITS;
+            int size = 0;
+            for (; v >= 0 && v >>> CHUNK_BITS == key; v = bits.nextSetBit(v + 1)) {
+                values[size++] = (char) v;
+            }
+            keys[n] = (char) key;
+            chunks[n++] = Chunk.of(values, size);
+        }
+        return new CompressedIntBitmap(Arrays.copyOf(keys, n), Arrays.copyOf(chunks, n), bits.cardinality());
+    }
+
+    @Override
+    public boolean contains(final int value) {
+        final int i = Arrays.binarySearch(m_keys, (char) (value >>> CHUNK_BITS));
+        return i >= 0 && m_chunks[i].contains(value & LOW_MASK);
+    }
+
+    @Override
+    public int cardinality() {
+        return m_cardinality;
+    }
+
+    @Override
+    public int nextSetBit(final int from) {
+        final int key = from >>> CHUNK_BITS;
+        int i = Arrays.binarySearch(m_keys, (char) key);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        for (; i < m_keys.length; i++) {
+            final int low = m_chunks[i].nextSetBit(m_keys[i] == key ? from & LOW_MASK : 0);
+            if (low >= 0) {
+                return m_keys[i] << CHUNK_BITS | low;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int nextClearBit(final int from) {
+        int v = from;
+        for (;;) {
+            final int key = v >>> CHUNK_BITS;
+            final int i = Arrays.binarySearch(m_keys, (char) key);
+            if (i < 0) {
+                return v;
+            }
+            final int low = m_chunks[i].nextClearBit(v & LOW_MASK);
+            if (low < CHUNK_SIZE) {
+                return key << CHUNK_BITS | low;
+            }
+            v = (key + 1) << CHUNK_BITS;
+        }
+    }
+
+    @Override
+    public IntBitmap with(final int value) {
+        final int i = Arrays.binarySearch(m_keys, (char) (value >>> CHUNK_BITS));
+        final int low = value & LOW_MASK;
+        if (i >= 0) {
+            if (m_chunks[i].contains(low)) {
+                return this;
+            }
+            final Chunk[] chunks = m_chunks.clone();
+            chunks[i] = chunks[i].with(low);
+            return new CompressedIntBitmap(m_keys, chunks, m_cardinality + 1);
+        }
+        final int at = -i - 1;
+        final char[] keys = new char[m_keys.length + 1];
+        final Chunk[] chunks = new Chunk[m_chunks.length + 1];
+        System.arraycopy(m_keys, 0, keys, 0, at);
+        System.arraycopy(m_chunks, 0, chunks, 0, at);
+        keys[at] = (char) (value >>> CHUNK_BITS);
+        chunks[at] = new ArrayChunk(new char[] {(char) low});
+        System.arraycopy(m_keys, at, keys, at + 1, m_keys.length - at);
+        System.arraycopy(m_chunks, at, chunks, at + 1, m_chunks.length - at);
+        return new CompressedIntBitmap(keys, chunks, m_cardinality + 1);
+    }
+
+    @Override
+    public int andNotCardinality(final long[] words) {
+        int count = 0;
+        for (int i = 0; i < m_keys.length; i++) {
+            count += m_chunks[i].andNotCardinality(words, m_keys[i] << CHUNK_BITS);
+        }
+        return count;
+    }
+
+    @Override
+    public BitSet toBitSet() {
+        final BitSet bits = new BitSet();
+        for (int v = nextSetBit(0); v >= 0; v = nextSetBit(v + 1)) {
+            bits.set(v);
+        }
+        return bits;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(m_keys) + Arrays.hashCode(m_chunks);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof CompressedIntBitmap)) {
+            return false;
+        }
+        final CompressedIntBitmap other = (CompressedIntBitmap) obj;
+        return m_cardinality == other.m_cardinality && Arrays.equals(m_keys, other.m_keys)
+                && Arrays.equals(m_chunks, other.m_chunks);
+    }
+
+    @Override
+    public String toString() {
+        return toBitSet().toString();
+    }
+
+    /**
+     * The lower 16 bits of the values sharing their upper 16 bits. Every chunk holds at least one value,
+     * and uses the smaller representation for its number of values, so equal chunks are represented equally.
+     */
+    private abstract static class Chunk {
+
+        static Chunk of(final char[] values, final int size) {
+            if (size <= ARRAY_LIMIT) {
+                return new ArrayChunk(Arrays.copyOf(values, size));
+            }
+            final long[] words = new long[CHUNK_SIZE / Long.SIZE];
+            for (int i = 0; i < size; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return new BitsChunk(words, size);
+        }
+
+        abstract boolean contains(int low);
+
+        abstract int nextSetBit(int low);
+
+        /**
+         * @return the next clear bit, {@link CompressedIntBitmap#CHUNK_SIZE} if all bits from low on are set
+         */
+        abstract int nextClearBit(int low);
+
+        abstract Chunk with(int low);
+
+        abstract int andNotCardinality(long[] words, int base);
+    }
+
+    private static final class ArrayChunk extends Chunk {
+
+        private final char[] m_values;
+
+        ArrayChunk(final char[] values) {
+            m_values = values;
+        }
+
+        @Override
+        boolean contains(final int low) {
+            return Arrays.binarySearch(m_values, (char) low) >= 0;
+        }
+
+        @Override
+        int nextSetBit(final int low) {
+            int i = Arrays.binarySearch(m_values, (char) low);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return i < m_values.length ? m_values[i] : -1;
+        }
+
+        @Override
+        int nextClearBit(final int low) {
+            int i = Arrays.binarySearch(m_values, (char) low);
+            if (i < 0) {
+                return low;
+            }
+            int v = low;
+            // Walk the run of consecutive values starting at low
+            while (i < m_values.length && m_values[i] == v) {
+                i++;
+                v++;
+            }
+            return v;
+        }
+
+        @Override
+        Chunk with(final int low) {
+            final int at = -Arrays.binarySearch(m_values, (char) low) - 1;
+            final char[] values = new char[m_values.length + 1];
+            System.arraycopy(m_values, 0, values, 0, at);
+            values[at] = (char) low;
+            System.arraycopy(m_values, at, values, at + 1, m_values.length - at);
+            return of(values, values.length);
+        }
+
+        @Override
+        int andNotCardinality(final long[] words, final int base) {
+            int count = 0;
+            for (final char low : m_values) {
+                final int v = base | low;
+                final int w = v >>> 6;
+                if (w >= words.length || (words[w] & (1L << v)) == 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(m_values);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof ArrayChunk && Arrays.equals(m_values, ((ArrayChunk) obj).m_values);
+        }
+    }
+
+    private static final class BitsChunk extends Chunk {
+
+        private final long[] m_words;
+        private final int m_cardinality;
+
+        BitsChunk(final long[] words, final int cardinality) {
+            m_words = words;
+            m_cardinality = cardinality;
+        }
+
+        @Override
+        boolean contains(final int low) {
+            return (m_words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int nextSetBit(final int low) {
+            int w = low >>> 6;
+            long word = m_words[w] & (-1L << low);
+            while (word == 0) {
+                if (++w == m_words.length) {
+                    return -1;
+                }
+                word = m_words[w];
+            }
+            return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        int nextClearBit(final int low) {
+            int w = low >>> 6;
+            long word = ~m_words[w] & (-1L << low);
+            while (word == 0) {
+                if (++w == m_words.length) {
+                    return CHUNK_SIZE;
+                }
+                word = ~m_words[w];
+            }
+            return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        Chunk with(final int low) {
+            final long[] words = m_words.clone();
+            words[low >>> 6] |= 1L << low;
+            return new BitsChunk(words, m_cardinality + 1);
+        }
+
+        @Override
+        int andNotCardinality(final long[] words, final int base) {
+            final int offset = base >>> 6;
+            int count = 0;
+            for (int w = 0; w < m_words.length; w++) {
+                count += Long.bitCount(offset + w < words.length ? m_words[w] & ~words[offset + w] : m_words[w]);
+            }
+            return count;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(m_words);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof BitsChunk && Arrays.equals(m_words, ((BitsChunk) obj).m_words);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package de.unikn.widening.base.collections;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed number of buckets each holding the element with the lowest key offered to it.
+ * Elements can be offered from several threads without locking. Every bucket is a single word packing
+ * the key of its element with the element's index in an append-only slab, which is replaced by
+ * compare-and-set. Only elements that beat the current key of their bucket are written to the slab.
+ *
+ * @param <E> the type of the elements
+ */
+public class ConcurrentBucketTable<E> {
+
+    /** The number of bits available for keys. */
+    public static final int KEY_BITS = 38;
+
+    /** The largest key that can be offered. */
+    public static final long MAX_KEY = (1L << KEY_BITS) - 2;
+
+    private static final int ID_BITS = 64 - 1 - KEY_BITS;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    // Packs the largest key, so every valid key beats it
+    private static final long EMPTY = Long.MAX_VALUE;
+
+    private final AtomicLongArray m_words;
+    private final AtomicReferenceArray<Object[]> m_chunks;
+    private final AtomicInteger m_nextId = new AtomicInteger();
+
+    /**
+     * Creates a new table with empty buckets.
+     * @param buckets the number of buckets
+     */
+    public ConcurrentBucketTable(final int buckets) {
+        m_words = new AtomicLongArray(buckets);
+        for (int i = 0; i < buckets; i++) {
+            m_words.set(i, EMPTY);
+        }
+        m_chunks = new AtomicReferenceArray<>(1 << (ID_BITS - CHUNK_BITS));
+    }
+
+    /**
+     * @return the number of buckets
+     */
+    public int size() {
+        return m_words.length();
+    }
+
+    /**
+     * @param bucket the bucket
+     * @return the key of the bucket's element, or a key larger than {@link #MAX_KEY} if the bucket is empty
+     */
+    public long key(final int bucket) {
+        return m_words.get(bucket) >>> ID_BITS;
+    }
+
+    /**
+     * Offers an element to a bucket. It replaces the bucket's element if its key is lower.
+     * @param bucket the bucket
+     * @param key the key of the element, between zero and {@link #MAX_KEY}
+     * @param element the element
+     * @return true if the element was put into the bucket
+     */
+    public boolean offer(final int bucket, final long key, final E element) {
+        return offer(bucket, key, element, null);
+    }
+
+    /**
+     * Offers an element to a bucket. It replaces the bucket's element if its key is lower, or if the keys are
+     * equal and the element comes first by a comparator. Use this when keys do not decide the order alone.
+     * @param bucket the bucket
+     * @param key the key of the element, between zero and {@link #MAX_KEY}
+     * @param element the element
+     * @param ties orders elements with equal keys, null to keep the element that was offered first
+     * @return true if the element was put into the bucket
+     */
+    public boolean offer(final int bucket, final long key, final E element, final Comparator<? super E> ties) {
+        long current = m_words.get(bucket);
+        int id = -1;
+        for (;;) {
+            final long currentKey = current >>> ID_BITS;
+            if (currentKey < key
+                    || currentKey == key && (ties == null || ties.compare(element, get(current)) >= 0)) {
+                return false;
+            }
+            if (id < 0) {
+                // Stored once, even if the compare-and-set has to be retried
+                id = store(element);
+            }
+            if (m_words.compareAndSet(bucket, current, key << ID_BITS | id)) {
+                return true;
+            }
+            current = m_words.get(bucket);
+        }
+    }
+
+    /**
+     * @param bucket the bucket
+     * @return the element in the bucket or null if it is empty
+     */
+    public E get(final int bucket) {
+        return get(m_words.get(bucket));
+    }
+
+    @SuppressWarnings("unchecked")
+    private E get(final long word) {
+        if (word == EMPTY) {
+            return null;
+        }
+        final int id = (int) (word & ID_MASK);
+        return (E) m_chunks.get(id >>> CHUNK_BITS)[id & CHUNK_MASK];
+    }
+
+    /**
+     * @return the elements of all non-empty buckets
+     */
+    public List<E> elements() {
+        final List<E> out = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            final E e = get(i);
+            if (e != null) {
+                out.add(e);
+            }
+        }
+        return out;
+    }
+
+    private int store(final E element) {
+        final int id = m_nextId.getAndIncrement();
+        if (id < 0 || id > ID_MASK) {
+            throw new IllegalStateException("Too many elements offered to the bucket table.");
+        }
+        final int chunk = id >>> CHUNK_BITS;
+        Object[] c = m_chunks.get(chunk);
+        if (c == null) {
+            m_chunks.compareAndSet(chunk, null, new Object[1 << CHUNK_BITS]);
+            c = m_chunks.get(chunk);
+        }
+        // Published to readers by the compare-and-set of the bucket word
+        c[id & CHUNK_MASK] = element;
+        return id;
+    }
+}
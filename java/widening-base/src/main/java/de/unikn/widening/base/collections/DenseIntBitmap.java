@@ -0,0 +1,113 @@
+package de.unikn.widening.base.collections;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@link IntBitmap} with one bit per value up to the largest value, like a {@link BitSet}.
+ * Adding a value copies all words.
+ */
+public final class DenseIntBitmap implements IntBitmap {
+
+    private static final DenseIntBitmap EMPTY = new DenseIntBitmap(new long[0], 0);
+
+    // Without trailing zero words, so equal bitmaps have equal words
+    private final long[] m_words;
+    private final int m_cardinality;
+
+    private DenseIntBitmap(final long[] words, final int cardinality) {
+        m_words = words;
+        m_cardinality = cardinality;
+    }
+
+    /**
+     * @param bits the values of the bitmap
+     * @return a bitmap with the given values
+     */
+    public static DenseIntBitmap of(final BitSet bits) {
+        return bits.isEmpty() ? EMPTY : new DenseIntBitmap(bits.toLongArray(), bits.cardinality());
+    }
+
+    @Override
+    public boolean contains(final int value) {
+        final int w = value >>> 6;
+        return w < m_words.length && (m_words[w] & (1L << value)) != 0;
+    }
+
+    @Override
+    public int cardinality() {
+        return m_cardinality;
+    }
+
+    @Override
+    public int nextSetBit(final int from) {
+        int w = from >>> 6;
+        if (w >= m_words.length) {
+            return -1;
+        }
+        long word = m_words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == m_words.length) {
+                return -1;
+            }
+            word = m_words[w];
+        }
+        return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    public int nextClearBit(final int from) {
+        int w = from >>> 6;
+        if (w >= m_words.length) {
+            return from;
+        }
+        long word = ~m_words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == m_words.length) {
+                return w * Long.SIZE;
+            }
+            word = ~m_words[w];
+        }
+        return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+    }
+
+    @Override
+    public IntBitmap with(final int value) {
+        if (contains(value)) {
+            return this;
+        }
+        final int w = value >>> 6;
+        final long[] words = Arrays.copyOf(m_words, Math.max(m_words.length, w + 1));
+        words[w] |= 1L << value;
+        return new DenseIntBitmap(words, m_cardinality + 1);
+    }
+
+    @Override
+    public int andNotCardinality(final long[] words) {
+        int count = 0;
+        for (int w = 0; w < m_words.length; w++) {
+            count += Long.bitCount(w < words.length ? m_words[w] & ~words[w] : m_words[w]);
+        }
+        return count;
+    }
+
+    @Override
+    public BitSet toBitSet() {
+        return BitSet.valueOf(m_words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(m_words);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof DenseIntBitmap && Arrays.equals(m_words, ((DenseIntBitmap) obj).m_words);
+    }
+
+    @Override
+    public String toString() {
+        return toBitSet().toString();
+    }
+}
@@ -0,0 +1,62 @@
+package de.unikn.widening.base.collections;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Iterable that skips the elements of another iterable not matching a condition.
+ * The condition is evaluated lazily, once per element and iteration.
+ */
+public class FilteredIterable<T> implements Iterable<T> {
+
+    private final Iterable<T> m_iter;
+    private final Predicate<? super T> m_filter;
+
+    /**
+     * Creates a new <code>FilteredIterable</code>.
+     * @param iter the iterable to filter
+     * @param filter the condition elements must fulfill
+     */
+    public FilteredIterable(final Iterable<T> iter, final Predicate<? super T> filter) {
+        m_iter = iter;
+        m_filter = filter;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Iterator<T> iter = m_iter.iterator();
+        return new Iterator<T>() {
+            private T m_next;
+            private boolean m_hasNext;
+
+            @Override
+            public boolean hasNext() {
+                while (!m_hasNext && iter.hasNext()) {
+                    final T next = iter.next();
+                    if (m_filter.test(next)) {
+                        m_next = next;
+                        m_hasNext = true;
+                    }
+                }
+                return m_hasNext;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                m_hasNext = false;
+                final T next = m_next;
+                m_next = null;
+                return next;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package de.unikn.widening.base.collections;
+
+import java.util.BitSet;
+
+/**
+ * Immutable set of non-negative ints. Adding a value creates a new bitmap, which may share
+ * unchanged parts with this one, so models can hold bitmaps of their parents without copying them.
+ * Implementations differ in how they trade memory for speed, see {@link IntBitmapFactory}.
+ */
+public interface IntBitmap {
+
+    /**
+     * @param value a non-negative value
+     * @return true if the value is in the bitmap
+     */
+    boolean contains(int value);
+
+    /**
+     * @return the number of values in the bitmap
+     */
+    int cardinality();
+
+    /**
+     * @param from the smallest value to return, non-negative
+     * @return the smallest value in the bitmap not below <code>from</code>, -1 if there is none
+     */
+    int nextSetBit(int from);
+
+    /**
+     * @param from the smallest value to return, non-negative
+     * @return the smallest value not in the bitmap and not below <code>from</code>
+     */
+    int nextClearBit(int from);
+
+    /**
+     * @param value a non-negative value
+     * @return a bitmap with the values of this bitmap and the given value, this bitmap if it contains it already
+     */
+    IntBitmap with(int value);
+
+    /**
+     * Counts the values that are not set in a dense bit vector.
+     * @param words the bit vector, as returned by {@link BitSet#toLongArray()}
+     * @return the number of values of this bitmap whose bits are not set in the words
+     */
+    int andNotCardinality(long[] words);
+
+    /**
+     * @return a new bit set containing the values of this bitmap
+     */
+    BitSet toBitSet();
+}
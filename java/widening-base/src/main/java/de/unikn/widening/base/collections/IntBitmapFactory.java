@@ -0,0 +1,32 @@
+package de.unikn.widening.base.collections;
+
+import java.util.BitSet;
+
+/**
+ * Creates {@link IntBitmap}s of one implementation.
+ */
+@FunctionalInterface
+public interface IntBitmapFactory {
+
+    /** Creates {@link DenseIntBitmap}s, fastest for bitmaps holding a large fraction of their range. */
+    IntBitmapFactory DENSE = DenseIntBitmap::of;
+
+    /** Creates {@link PersistentIntBitmap}s, almost as fast as dense bitmaps but cheap to extend. */
+    IntBitmapFactory PERSISTENT = PersistentIntBitmap::of;
+
+    /** Creates {@link CompressedIntBitmap}s, smallest for sparse bitmaps over large ranges. */
+    IntBitmapFactory COMPRESSED = CompressedIntBitmap::of;
+
+    /**
+     * @param bits the values of the bitmap
+     * @return a bitmap with the given values
+     */
+    IntBitmap of(BitSet bits);
+
+    /**
+     * @return a bitmap without values
+     */
+    default IntBitmap empty() {
+        return of(new BitSet());
+    }
+}
@@ -0,0 +1,104 @@
+package de.unikn.widening.base.collections;
+
+import java.util.Arrays;
+
+/**
+ * Binary max-heap of primitive longs in a single array.
+ * Callers pack priority and payload into one long, so ordering needs no objects or comparators.
+ */
+public class LongHeap {
+
+    private long[] m_heap;
+    private int m_size;
+
+    /**
+     * Creates an empty heap.
+     * @param capacity the initial capacity
+     */
+    public LongHeap(final int capacity) {
+        m_heap = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * Creates a heap of the given values.
+     * @param values the values, the heap takes ownership of the array
+     */
+    public LongHeap(final long[] values) {
+        m_heap = values;
+        m_size = values.length;
+        for (int i = m_size / 2 - 1; i >= 0; i--) {
+            siftDown(i, m_heap[i]);
+        }
+    }
+
+    /**
+     * @return the number of values in the heap
+     */
+    public int size() {
+        return m_size;
+    }
+
+    /**
+     * @return true if the heap has no values
+     */
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+
+    /**
+     * @return the largest value, undefined if the heap is empty
+     */
+    public long peek() {
+        return m_heap[0];
+    }
+
+    /**
+     * Adds a value.
+     * @param value the value
+     */
+    public void push(final long value) {
+        if (m_size == m_heap.length) {
+            m_heap = Arrays.copyOf(m_heap, m_size * 2);
+        }
+        int i = m_size++;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (m_heap[parent] >= value) {
+                break;
+            }
+            m_heap[i] = m_heap[parent];
+            i = parent;
+        }
+        m_heap[i] = value;
+    }
+
+    /**
+     * Removes the largest value.
+     * @return the largest value, undefined if the heap is empty
+     */
+    public long pop() {
+        final long top = m_heap[0];
+        final long last = m_heap[--m_size];
+        if (m_size > 0) {
+            siftDown(0, last);
+        }
+        return top;
+    }
+
+    private void siftDown(final int from, final long value) {
+        int i = from;
+        final int half = m_size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < m_size && m_heap[child + 1] > m_heap[child]) {
+                child++;
+            }
+            if (value >= m_heap[child]) {
+                break;
+            }
+            m_heap[i] = m_heap[child];
+            i = child;
+        }
+        m_heap[i] = value;
+    }
+}
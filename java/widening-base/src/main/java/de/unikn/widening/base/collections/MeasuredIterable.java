@@ -0,0 +1,56 @@
+package de.unikn.widening.base.collections;
+
+import java.util.Iterator;
+
+/**
+ * Iterable that counts the elements of its first iteration. It does not time the elements, reading the clock
+ * for every element would cost more than creating many of them. Callers time whole iterations instead.
+ */
+public class MeasuredIterable<T> implements Iterable<T> {
+
+    private final Iterable<T> m_iter;
+    private boolean m_iterated;
+    private long m_count;
+
+    /**
+     * Creates a new <code>MeasuredIterable</code>.
+     * @param iter the iterable to wrap
+     */
+    public MeasuredIterable(final Iterable<T> iter) {
+        m_iter = iter;
+    }
+
+    /**
+     * @return the number of elements returned by the first iterator
+     */
+    public long getCount() {
+        return m_count;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        final Iterator<T> iter = m_iter.iterator();
+        // Selectors may iterate several times, only the first iteration is counted
+        final boolean counted = !m_iterated;
+        m_iterated = true;
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (counted) {
+                    m_count++;
+                }
+                return iter.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,293 @@
+package de.unikn.widening.base.collections;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@link IntBitmap} stored as a trie of dense chunks of 512 bits with 32 children per inner node.
+ * Adding a value copies only the chunk it falls into and the inner nodes on the path to it, while
+ * all other chunks are shared with this bitmap. So a bitmap over a million values is extended by copying
+ * a few hundred bytes instead of 128 KiB, but reading it stays almost as fast as reading dense words.
+ * Chunks and inner nodes only exist where values are.
+ */
+public final class PersistentIntBitmap implements IntBitmap {
+
+    private static final PersistentIntBitmap EMPTY = new PersistentIntBitmap(null, 0, 0);
+
+    private static final int LEAF_SHIFT = 9;
+    private static final int LEAF_WORDS = (1 << LEAF_SHIFT) / Long.SIZE;
+    private static final int BRANCH_SHIFT = 5;
+    private static final int BRANCH = 1 << BRANCH_SHIFT;
+    private static final int BRANCH_MASK = BRANCH - 1;
+
+    // A long[] chunk if m_depth is 0, otherwise an Object[] of children, null if the bitmap is empty
+    private final Object m_root;
+    // The number of inner node levels above the chunks
+    private final int m_depth;
+    private final int m_cardinality;
+
+    private PersistentIntBitmap(final Object root, final int depth, final int cardinality) {
+        m_root = root;
+        m_depth = depth;
+        m_cardinality = cardinality;
+    }
+
+    /**
+     * @param bits the values of the bitmap
+     * @return a bitmap with the given values
+     */
+    public static PersistentIntBitmap of(final BitSet bits) {
+        if (bits.isEmpty()) {
+            return EMPTY;
+        }
+        final int depth = depthFor(bits.length() - 1);
+        final long[] words = bits.toLongArray();
+        Object root = null;
+        for (int w = 0; w < words.length; w += LEAF_WORDS) {
+            long[] leaf = null;
+            for (int i = 0; i < LEAF_WORDS && w + i < words.length; i++) {
+                if (words[w + i] != 0) {
+                    if (leaf == null) {
+                        leaf = new long[LEAF_WORDS];
+                    }
+                    leaf[i] = words[w + i];
+                }
+            }
+            if (leaf != null) {
+                // The nodes are not shared yet, so they are filled in place
+                root = insert(root, depth, w * Long.SIZE, leaf);
+            }
+        }
+        return new PersistentIntBitmap(root, depth, bits.cardinality());
+    }
+
+    @Override
+    public boolean contains(final int value) {
+        if (value >= capacity(m_depth)) {
+            return false;
+        }
+        Object node = m_root;
+        for (int level = m_depth; level > 0 && node != null; level--) {
+            node = ((Object[]) node)[(value >>> shift(level)) & BRANCH_MASK];
+        }
+        return node != null && (((long[]) node)[(value >>> 6) & (LEAF_WORDS - 1)] & (1L << value)) != 0;
+    }
+
+    @Override
+    public int cardinality() {
+        return m_cardinality;
+    }
+
+    @Override
+    public int nextSetBit(final int from) {
+        if (from >= capacity(m_depth)) {
+            return -1;
+        }
+        return nextSetBit(m_root, m_depth, 0, from);
+    }
+
+    @Override
+    public int nextClearBit(final int from) {
+        if (from >= capacity(m_depth)) {
+            return from;
+        }
+        final int next = nextClearBit(m_root, m_depth, 0, from);
+        return next >= 0 ? next : (int) capacity(m_depth);
+    }
+
+    @Override
+    public IntBitmap with(final int value) {
+        if (contains(value)) {
+            return this;
+        }
+        Object root = m_root;
+        int depth = m_depth;
+        if (root == null) {
+            depth = depthFor(value);
+        } else {
+            while (value >= capacity(depth)) {
+                // The old trie becomes the first child of a new root
+                final Object[] parent = new Object[BRANCH];
+                parent[0] = root;
+                root = parent;
+                depth++;
+            }
+        }
+        return new PersistentIntBitmap(with(root, depth, value), depth, m_cardinality + 1);
+    }
+
+    @Override
+    public int andNotCardinality(final long[] words) {
+        return andNotCardinality(m_root, m_depth, 0, words);
+    }
+
+    @Override
+    public BitSet toBitSet() {
+        final BitSet bits = new BitSet();
+        for (int v = nextSetBit(0); v >= 0; v = nextSetBit(v + 1)) {
+            bits.set(v);
+        }
+        return bits;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int v = nextSetBit(0); v >= 0; v = nextSetBit(v + 1)) {
+            hash = 31 * hash + v;
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof PersistentIntBitmap)) {
+            return false;
+        }
+        final PersistentIntBitmap other = (PersistentIntBitmap) obj;
+        // The depth only depends on the largest value, and nodes only exist where values are
+        return m_cardinality == other.m_cardinality && m_depth == other.m_depth
+                && equal(m_root, other.m_root, m_depth);
+    }
+
+    @Override
+    public String toString() {
+        return toBitSet().toString();
+    }
+
+    private static int shift(final int level) {
+        return LEAF_SHIFT + BRANCH_SHIFT * (level - 1);
+    }
+
+    private static long capacity(final int depth) {
+        return 1L << (LEAF_SHIFT + BRANCH_SHIFT * depth);
+    }
+
+    private static int depthFor(final int value) {
+        int depth = 0;
+        while (value >= capacity(depth)) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static Object insert(final Object node, final int level, final int base, final long[] leaf) {
+        if (level == 0) {
+            return leaf;
+        }
+        final Object[] children = node == null ? new Object[BRANCH] : (Object[]) node;
+        final int i = (base >>> shift(level)) & BRANCH_MASK;
+        children[i] = insert(children[i], level - 1, base, leaf);
+        return children;
+    }
+
+    private static Object with(final Object node, final int level, final int value) {
+        if (level == 0) {
+            final long[] leaf = node == null ? new long[LEAF_WORDS] : ((long[]) node).clone();
+            leaf[(value >>> 6) & (LEAF_WORDS - 1)] |= 1L << value;
+            return leaf;
+        }
+        final Object[] children = node == null ? new Object[BRANCH] : ((Object[]) node).clone();
+        final int i = (value >>> shift(level)) & BRANCH_MASK;
+        children[i] = with(children[i], level - 1, value);
+        return children;
+    }
+
+    private static int nextSetBit(final Object node, final int level, final int base, final int from) {
+        if (node == null) {
+            return -1;
+        }
+        if (level == 0) {
+            final long[] leaf = (long[]) node;
+            int w = Math.max(0, from - base) >>> 6;
+            if (w >= LEAF_WORDS) {
+                return -1;
+            }
+            long word = leaf[w] & (from > base ? -1L << from : -1L);
+            while (word == 0) {
+                if (++w == LEAF_WORDS) {
+                    return -1;
+                }
+                word = leaf[w];
+            }
+            return base + w * Long.SIZE + Long.numberOfTrailingZeros(word);
+        }
+        final Object[] children = (Object[]) node;
+        final int shift = shift(level);
+        for (int i = from > base ? (from - base) >>> shift : 0; i < BRANCH; i++) {
+            final int next = nextSetBit(children[i], level - 1, base + (i << shift), from);
+            if (next >= 0) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    private static int nextClearBit(final Object node, final int level, final int base, final int from) {
+        if (node == null) {
+            return Math.max(base, from);
+        }
+        if (level == 0) {
+            final long[] leaf = (long[]) node;
+            int w = Math.max(0, from - base) >>> 6;
+            long word = ~leaf[w] & (from > base ? -1L << from : -1L);
+            while (word == 0) {
+                if (++w == LEAF_WORDS) {
+                    return -1;
+                }
+                word = ~leaf[w];
+            }
+            return base + w * Long.SIZE + Long.numberOfTrailingZeros(word);
+        }
+        final Object[] children = (Object[]) node;
+        final int shift = shift(level);
+        for (int i = from > base ? (from - base) >>> shift : 0; i < BRANCH; i++) {
+            final int next = nextClearBit(children[i], level - 1, base + (i << shift), from);
+            if (next >= 0) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    private static int andNotCardinality(final Object node, final int level, final int base, final long[] words) {
+        if (node == null) {
+            return 0;
+        }
+        int count = 0;
+        if (level == 0) {
+            final long[] leaf = (long[]) node;
+            final int offset = base >>> 6;
+            for (int w = 0; w < LEAF_WORDS; w++) {
+                count += Long.bitCount(offset + w < words.length ? leaf[w] & ~words[offset + w] : leaf[w]);
+            }
+            return count;
+        }
+        final Object[] children = (Object[]) node;
+        final int shift = shift(level);
+        for (int i = 0; i < BRANCH; i++) {
+            count += andNotCardinality(children[i], level - 1, base + (i << shift), words);
+        }
+        return count;
+    }
+
+    private static boolean equal(final Object a, final Object b, final int level) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (level == 0) {
+            return Arrays.equals((long[]) a, (long[]) b);
+        }
+        final Object[] left = (Object[]) a;
+        final Object[] right = (Object[]) b;
+        for (int i = 0; i < BRANCH; i++) {
+            if (!equal(left[i], right[i], level - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,79 @@
+package de.unikn.widening.base.execution;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Transposition table backed by a Bloom filter. It never forgets a state, but reports states as
+ * contained that were not added with a probability growing with the number of added states.
+ * Use it for runs selecting too many states to store them exactly.
+ */
+public class BloomTranspositionTable implements TranspositionTable {
+
+    private final AtomicLongArray m_words;
+    private final long m_mask;
+    private final int m_hashes;
+
+    /**
+     * Creates a table for an expected number of states and false positive rate.
+     * @param states the number of states expected to be added
+     * @param falsePositiveRate the probability of reporting a state as contained that was not added
+     *          once the expected number of states was added
+     * @return the table
+     */
+    public static BloomTranspositionTable create(final long states, final double falsePositiveRate) {
+        final double ln2 = Math.log(2);
+        final long bits = (long) Math.ceil(-states * Math.log(falsePositiveRate) / (ln2 * ln2));
+        final int hashes = (int) Math.max(1, Math.round((double) bits / states * ln2));
+        return new BloomTranspositionTable(bits, hashes);
+    }
+
+    /**
+     * Creates a new table.
+     * @param bits the number of bits of the filter, rounded up to a power of two
+     * @param hashes the number of bits set per state
+     */
+    public BloomTranspositionTable(final long bits, final int hashes) {
+        final long size = Long.highestOneBit(Math.max(Long.SIZE, bits - 1)) << 1;
+        if (size / Long.SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many bits: " + bits);
+        }
+        m_words = new AtomicLongArray((int) (size / Long.SIZE));
+        m_mask = size - 1;
+        m_hashes = hashes;
+    }
+
+    @Override
+    public boolean contains(final long hash) {
+        final long h1 = TranspositionTable.mix(hash);
+        // Double hashing derives all bit positions from two hashes
+        final long h2 = TranspositionTable.mix(h1) | 1;
+        for (int i = 0; i < m_hashes; i++) {
+            final long bit = (h1 + i * h2) & m_mask;
+            if ((m_words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean add(final long hash) {
+        final long h1 = TranspositionTable.mix(hash);
+        final long h2 = TranspositionTable.mix(h1) | 1;
+        boolean added = false;
+        for (int i = 0; i < m_hashes; i++) {
+            final long bit = (h1 + i * h2) & m_mask;
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long current = m_words.get(word);
+            while ((current & mask) == 0) {
+                if (m_words.compareAndSet(word, current, current | mask)) {
+                    added = true;
+                    break;
+                }
+                current = m_words.get(word);
+            }
+        }
+        return added;
+    }
+}
@@ -0,0 +1,63 @@
+package de.unikn.widening.base.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link WideningListener} that passes every measurement to several listeners in the given order,
+ * e.g. to aggregate {@link WideningMetrics} and record JFR events of the same runs.
+ *
+ * @param <S> the type of the model scores
+ */
+public class CompositeWideningListener<S extends Comparable<S>> implements WideningListener<S> {
+
+    private final List<WideningListener<S>> m_listeners;
+
+    /**
+     * Creates a new listener.
+     * @param listeners the listeners to pass the measurements to
+     */
+    public CompositeWideningListener(final Collection<? extends WideningListener<S>> listeners) {
+        m_listeners = new ArrayList<>(listeners);
+    }
+
+    /**
+     * @param listeners the listeners to pass the measurements to
+     * @return a listener passing the measurements to all of the listeners
+     */
+    @SafeVarargs
+    public static <S extends Comparable<S>> CompositeWideningListener<S> of(final WideningListener<S>... listeners) {
+        return new CompositeWideningListener<>(Arrays.asList(listeners));
+    }
+
+    @Override
+    public void levelStarted(final int level, final int frontierSize) {
+        for (final WideningListener<S> listener : m_listeners) {
+            listener.levelStarted(level, frontierSize);
+        }
+    }
+
+    @Override
+    public void refined(final int level, final long candidates, final long nanos, final long waitNanos) {
+        for (final WideningListener<S> listener : m_listeners) {
+            listener.refined(level, candidates, nanos, waitNanos);
+        }
+    }
+
+    @Override
+    public void selected(final int level, final long candidates, final long mergeNanos, final long selectNanos,
+            final int models, final S bestScore) {
+        for (final WideningListener<S> listener : m_listeners) {
+            listener.selected(level, candidates, mergeNanos, selectNanos, models, bestScore);
+        }
+    }
+
+    @Override
+    public void runFinished(final int levels, final long nanos) {
+        for (final WideningListener<S> listener : m_listeners) {
+            listener.runFinished(levels, nanos);
+        }
+    }
+}
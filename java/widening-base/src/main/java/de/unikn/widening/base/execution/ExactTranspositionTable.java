@@ -0,0 +1,70 @@
+package de.unikn.widening.base.execution;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Transposition table storing state hashes in a fixed-size open-addressing table.
+ * States are only reported as contained if their hash was added, but once the probed slots of a hash are
+ * taken the hash is not stored, so a full table forgets states instead of growing.
+ */
+public class ExactTranspositionTable implements TranspositionTable {
+
+    private static final int MAX_PROBES = 16;
+    // Marks an empty slot, hashes mixed to it are stored as another value
+    private static final long EMPTY = 0;
+    private static final long ZERO = 1;
+
+    private final AtomicLongArray m_slots;
+    private final int m_mask;
+
+    /**
+     * Creates a new table.
+     * @param capacity the number of states the table can hold at most, rounded up to a power of two
+     */
+    public ExactTranspositionTable(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        m_slots = new AtomicLongArray(size);
+        m_mask = size - 1;
+    }
+
+    @Override
+    public boolean contains(final long hash) {
+        final long key = key(hash);
+        int slot = (int) key & m_mask;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            final long current = m_slots.get(slot);
+            if (current == key) {
+                return true;
+            } else if (current == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & m_mask;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(final long hash) {
+        final long key = key(hash);
+        int slot = (int) key & m_mask;
+        for (int i = 0; i < MAX_PROBES; i++) {
+            final long current = m_slots.get(slot);
+            if (current == key) {
+                return false;
+            } else if (current == EMPTY) {
+                if (m_slots.compareAndSet(slot, EMPTY, key)) {
+                    return true;
+                }
+                // Another thread took the slot, it may have added the same hash
+                continue;
+            }
+            slot = (slot + 1) & m_mask;
+        }
+        return true;
+    }
+
+    private static long key(final long hash) {
+        final long key = TranspositionTable.mix(hash);
+        return key == EMPTY ? ZERO : key;
+    }
+}
@@ -0,0 +1,328 @@
+package de.unikn.widening.base.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.MergeableSelector;
+import de.unikn.widening.base.SplittableRefiner;
+import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.WideningRefiner;
+import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.collections.CancellableIterable;
+import de.unikn.widening.base.collections.MeasuredIterable;
+
+/**
+ * Widening calculator that refines the models of a level in a {@link ForkJoinPool}.
+ * The frontier is split recursively so that idle workers can steal refinement work, and the
+ * states of a {@link MergeableSelector} of two halves are merged. This way the partial results are
+ * reduced as a tree instead of waiting for all refinements before selecting anything. The local
+ * selections of other selectors are concatenated in the order of the frontier.
+ * If the refiner is a {@link SplittableRefiner} and the selector merges states, the refinement of a
+ * single model is split into index ranges as well.
+ */
+public class ForkJoinWideningCalculator<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>> {
+
+    private final WideningRefiner<S,T,C> m_refiner;
+    private final WideningSelector<S,T,C> m_selector;
+    private final ForkJoinPool m_pool;
+    private final LevelReduction<C,?> m_reduction;
+    private Supplier<? extends TranspositionTable> m_tables;
+    private ToLongFunction<? super C> m_stateHash;
+    private ToLongFunction<? super T> m_modelHash;
+    private WideningListener<S> m_listener;
+
+    /**
+     * Creates a new calculator running in the common pool.
+     * @param refiner the refiner creating candidates from models
+     * @param selector the selector choosing the candidates to continue with
+     */
+    public ForkJoinWideningCalculator(final WideningRefiner<S,T,C> refiner,
+                                        final WideningSelector<S,T,C> selector) {
+        this(refiner, selector, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a new calculator.
+     * @param refiner the refiner creating candidates from models
+     * @param selector the selector choosing the candidates to continue with
+     * @param pool the pool to run the refinement tasks in
+     */
+    public ForkJoinWideningCalculator(final WideningRefiner<S,T,C> refiner,
+                                        final WideningSelector<S,T,C> selector,
+                                        final ForkJoinPool pool) {
+        m_refiner = refiner;
+        m_selector = selector;
+        m_pool = pool;
+        m_reduction = LevelReduction.of(selector);
+    }
+
+    /**
+     * @param listener the listener to report measurements of the levels to, null to not measure.
+     *          Refinements are reported from the pool threads.
+     */
+    public void setListener(final WideningListener<S> listener) {
+        m_listener = listener;
+    }
+
+    /**
+     * Drops candidates whose states were already selected in the same run.
+     * @param tables creates the transposition table of a run, null to keep duplicate states
+     * @param stateHash the 64 bit hash of the state of a candidate
+     * @param modelHash the 64 bit hash of the state of a model, equal to the hash of the candidates creating it
+     */
+    public void setTranspositionTable(final Supplier<? extends TranspositionTable> tables,
+            final ToLongFunction<? super C> stateHash, final ToLongFunction<? super T> modelHash) {
+        m_tables = tables;
+        m_stateHash = stateHash;
+        m_modelHash = modelHash;
+    }
+
+    public Optional<T> run(final T start) {
+        return run(start, WideningBudget.unlimited());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     */
+    public Optional<T> run(final T start, final WideningBudget budget) {
+        return run(start, budget, new Incumbent<>());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * Refinement tasks still running when the budget runs out or the calling thread is interrupted are
+     * cancelled, including the parts of a level that already run in the pool.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @param incumbent the best complete model found so far, updated during the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     */
+    public Optional<T> run(final T start, final WideningBudget budget, final Incumbent<S,T> incumbent) {
+        final long startTime = System.nanoTime();
+        final TranspositionFilter<T, C> filter = TranspositionFilter.create(m_tables, m_stateHash, m_modelHash);
+        // Cancelling a fork/join task does not stop its running subtasks, so they check this flag
+        final AtomicBoolean abandoned = new AtomicBoolean();
+        final BooleanSupplier cancelled = () -> abandoned.get() || budget.isTimeUp(startTime);
+        final UnaryOperator<Iterable<C>> prepare =
+                refined -> new CancellableIterable<>(TranspositionFilter.unseen(filter, refined), cancelled);
+        // Pool threads report JFR events in the context of this run
+        final WideningContext context = WideningContext.current();
+        Iterable<T> models = Collections.singleton(start);
+        int level = 0;
+        try {
+            for (;; level++) {
+                final List<T> frontier = new ArrayList<>();
+                boolean done = false;
+                for (final T m : models) {
+                    if (m.isDone()) {
+                        incumbent.offer(m);
+                        done = true;
+                    } else {
+                        frontier.add(m);
+                    }
+                }
+                if (done || frontier.isEmpty()) {
+                    return incumbent.get();
+                }
+                if (budget.isExhausted(level, startTime)) {
+                    return incumbent.orBestOf(frontier);
+                }
+                if (m_listener != null) {
+                    m_listener.levelStarted(level, frontier.size());
+                }
+                final ForkJoinTask<Iterable<C>> task =
+                        m_pool.submit(new LevelTask<>(m_reduction.forLevel(), level, frontier, prepare, context));
+                try {
+                    models = TranspositionFilter.selected(filter, selectGlobal(level, TranspositionFilter.firstSeen(
+                            filter, task.get(budget.remaining(startTime), TimeUnit.NANOSECONDS))));
+                } catch (final TimeoutException | CancellationException e) {
+                    abandoned.set(true);
+                    task.cancel(true);
+                    return incumbent.orBestOf(frontier);
+                } catch (final ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof CancellationException) {
+                        return incumbent.orBestOf(frontier);
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                } catch (final InterruptedException e) {
+                    abandoned.set(true);
+                    task.cancel(true);
+                    Thread.currentThread().interrupt();
+                    return incumbent.orBestOf(frontier);
+                }
+            }
+        } finally {
+            if (m_listener != null) {
+                m_listener.runFinished(level, System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    private Iterable<T> selectGlobal(final int level, final Iterable<C> candidates) {
+        if (m_listener == null) {
+            return m_selector.selectGlobal(candidates);
+        }
+        // The local selections are merged in the pool while refining, so there is no separate merge time
+        final MeasuredIterable<C> measured = new MeasuredIterable<>(candidates);
+        final long start = System.nanoTime();
+        final Iterable<T> models = m_selector.selectGlobal(measured);
+        ListenerSupport.selected(m_listener, level, measured, 0, System.nanoTime() - start, models);
+        return models;
+    }
+
+    /**
+     * Refines a whole level and hands the reduced candidates to the global selection.
+     */
+    private final class LevelTask<R> extends RecursiveTask<Iterable<C>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LevelReduction<C,R> m_reduction;
+        private final int m_level;
+        private final List<T> m_frontier;
+        private final UnaryOperator<Iterable<C>> m_prepare;
+        private final WideningContext m_context;
+
+        LevelTask(final LevelReduction<C,R> reduction, final int level, final List<T> frontier,
+                final UnaryOperator<Iterable<C>> prepare, final WideningContext context) {
+            m_reduction = reduction;
+            m_level = level;
+            m_frontier = frontier;
+            m_prepare = prepare;
+            m_context = context;
+        }
+
+        @Override
+        protected Iterable<C> compute() {
+            return m_reduction.candidates(
+                    new RefineTask<>(m_reduction, m_level, m_frontier, 0, m_frontier.size(), m_prepare, m_context)
+                            .compute());
+        }
+    }
+
+    /**
+     * Refines the models in a range of the frontier and reduces their results.
+     */
+    private final class RefineTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LevelReduction<C,R> m_reduction;
+        private final int m_level;
+        private final List<T> m_frontier;
+        private final int m_from;
+        private final int m_to;
+        private final UnaryOperator<Iterable<C>> m_prepare;
+        private final WideningContext m_context;
+        // When the task was created, before it was forked and possibly stolen
+        private final long m_created = System.nanoTime();
+
+        RefineTask(final LevelReduction<C,R> reduction, final int level, final List<T> frontier, final int from,
+                final int to, final UnaryOperator<Iterable<C>> prepare, final WideningContext context) {
+            m_reduction = reduction;
+            m_level = level;
+            m_frontier = frontier;
+            m_from = from;
+            m_to = to;
+            m_prepare = prepare;
+            m_context = context;
+        }
+
+        @Override
+        protected R compute() {
+            if (m_to - m_from == 1) {
+                final T model = m_frontier.get(m_from);
+                if (m_refiner instanceof SplittableRefiner && m_reduction.isDecomposable()) {
+                    final SplittableRefiner<S,T,C> refiner = (SplittableRefiner<S,T,C>) m_refiner;
+                    final int size = refiner.size(model);
+                    // Ranges are split until every worker can get a few of them
+                    final int grain = Math.max(1, size / (4 * m_pool.getParallelism() * m_frontier.size()));
+                    return new RangeTask<>(m_reduction, m_level, refiner, model, 0, size, grain, m_prepare,
+                            m_context).compute();
+                }
+                return ListenerSupport.refine(m_listener, m_context, m_level, m_created,
+                        () -> m_prepare.apply(m_refiner.refine(model)), m_reduction::reduce);
+            }
+            final int mid = (m_from + m_to) >>> 1;
+            final RefineTask<R> left =
+                    new RefineTask<>(m_reduction, m_level, m_frontier, m_from, mid, m_prepare, m_context);
+            left.fork();
+            final R right =
+                    new RefineTask<>(m_reduction, m_level, m_frontier, mid, m_to, m_prepare, m_context).compute();
+            return m_reduction.combine(left.join(), right);
+        }
+    }
+
+    /**
+     * Refines a range of the candidate indices of a single model and reduces their results.
+     */
+    private final class RangeTask<R> extends RecursiveTask<R> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LevelReduction<C,R> m_reduction;
+        private final int m_level;
+        private final SplittableRefiner<S,T,C> m_splittable;
+        private final T m_model;
+        private final int m_from;
+        private final int m_to;
+        private final int m_grain;
+        private final UnaryOperator<Iterable<C>> m_prepare;
+        private final WideningContext m_context;
+        private final long m_created = System.nanoTime();
+
+        RangeTask(final LevelReduction<C,R> reduction, final int level, final SplittableRefiner<S,T,C> refiner,
+                final T model, final int from, final int to, final int grain,
+                final UnaryOperator<Iterable<C>> prepare, final WideningContext context) {
+            m_reduction = reduction;
+            m_level = level;
+            m_splittable = refiner;
+            m_model = model;
+            m_from = from;
+            m_to = to;
+            m_grain = grain;
+            m_prepare = prepare;
+            m_context = context;
+        }
+
+        @Override
+        protected R compute() {
+            if (m_to - m_from <= m_grain) {
+                return ListenerSupport.refine(m_listener, m_context, m_level, m_created,
+                        () -> m_prepare.apply(m_splittable.refine(m_model, m_from, m_to)), m_reduction::reduce);
+            }
+            final int mid = (m_from + m_to) >>> 1;
+            final RangeTask<R> left = new RangeTask<>(m_reduction, m_level, m_splittable, m_model,
+                    m_from, mid, m_grain, m_prepare, m_context);
+            left.fork();
+            final R right = new RangeTask<>(m_reduction, m_level, m_splittable, m_model,
+                    mid, m_to, m_grain, m_prepare, m_context).compute();
+            return m_reduction.combine(left.join(), right);
+        }
+    }
+}
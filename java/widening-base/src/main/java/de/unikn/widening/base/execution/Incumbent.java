@@ -0,0 +1,74 @@
+package de.unikn.widening.base.execution;
+
+import java.util.Comparator;
+import java.util.Optional;
+
+import de.unikn.widening.base.WideningModel;
+
+/**
+ * Holds the best complete model seen in a widening run, by default the one with the lowest score.
+ * Problems whose complete models all have the same score, like set covers, order them by another comparator.
+ * An incumbent can be seeded with a model found by a heuristic before the run and can be queried
+ * from other threads while the run is in progress.
+ */
+public final class Incumbent<S extends Comparable<S>, T extends WideningModel<S>> {
+
+    private final Comparator<? super T> m_order;
+    private T m_best;
+
+    /**
+     * Creates an incumbent keeping the complete model with the lowest score.
+     */
+    public Incumbent() {
+        this(Comparator.comparing(WideningModel::getScore));
+    }
+
+    /**
+     * Creates an incumbent keeping the lowest complete model by a comparator.
+     * @param order the order of complete models, lower is better
+     */
+    public Incumbent(final Comparator<? super T> order) {
+        m_order = order;
+    }
+
+    /**
+     * Offers a model. Models that are not done are ignored.
+     * @param model the model to offer
+     * @return true if the model became the new incumbent
+     */
+    public synchronized boolean offer(final T model) {
+        if (!model.isDone()) {
+            return false;
+        }
+        if (m_best == null || m_order.compare(model, m_best) < 0) {
+            m_best = model;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the best complete model so far
+     */
+    public synchronized Optional<T> get() {
+        return Optional.ofNullable(m_best);
+    }
+
+    /**
+     * Returns the incumbent or, if there is none yet, the best of the given unfinished models.
+     * @param frontier the models of the current level
+     * @return the best model available
+     */
+    public synchronized Optional<T> orBestOf(final Iterable<T> frontier) {
+        if (m_best != null) {
+            return Optional.of(m_best);
+        }
+        T best = null;
+        for (final T m : frontier) {
+            if (best == null || m.getScore().compareTo(best.getScore()) < 0) {
+                best = m;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+}
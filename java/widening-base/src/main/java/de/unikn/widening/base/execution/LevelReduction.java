@@ -0,0 +1,209 @@
+package de.unikn.widening.base.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.ConcurrentSelector;
+import de.unikn.widening.base.MergeableSelector;
+import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.collections.CompoundIterable;
+
+/**
+ * Describes how the refinements of a level are reduced to the candidates given to the global selection.
+ * Partial results are created for refined candidates and combined pairwise, in any order.
+ *
+ * @param <C> the type of the candidates
+ * @param <R> the type of the partial results
+ */
+abstract class LevelReduction<C, R> {
+
+    /**
+     * @param refined the candidates created by a refinement
+     * @return the partial result for the candidates
+     */
+    abstract R reduce(Iterable<C> refined);
+
+    /**
+     * @param left a partial result
+     * @param right another partial result
+     * @return the combination of both results
+     */
+    abstract R combine(R left, R right);
+
+    /**
+     * @param result a partial result
+     * @return the candidates of the result for the global selection
+     */
+    abstract Iterable<C> candidates(R result);
+
+    /**
+     * @return the reduction to use for the next level, this reduction unless it keeps per-level state
+     */
+    LevelReduction<C, R> forLevel() {
+        return this;
+    }
+
+    /**
+     * @return true if results may be combined in any order and the refinement of a single model may be split
+     *          into ranges, false if every model has to be refined and selected from as a whole and the results
+     *          have to be combined in the order of the frontier
+     */
+    boolean isDecomposable() {
+        return true;
+    }
+
+    /**
+     * Combines any number of partial results and returns their candidates.
+     * @param results the partial results, at least one
+     * @return the candidates of all results for the global selection
+     */
+    Iterable<C> candidates(final List<R> results) {
+        List<R> parts = results;
+        while (parts.size() > 1) {
+            // Combine neighbors so the results are reduced as a balanced tree
+            final List<R> combined = new ArrayList<>((parts.size() + 1) / 2);
+            for (int i = 0; i < parts.size(); i += 2) {
+                combined.add(i + 1 < parts.size() ? combine(parts.get(i), parts.get(i + 1)) : parts.get(i));
+            }
+            parts = combined;
+        }
+        return candidates(parts.get(0));
+    }
+
+    /**
+     * Creates the reduction for a selector. {@link ConcurrentSelector}s share one state per level,
+     * {@link MergeableSelector}s merge their states. The local selections of other selectors are concatenated
+     * and left to the global selection, like in the sequential calculator, because applying a local selection
+     * to the union of local selections changes the result of most selectors.
+     * @param selector the selector of the widening
+     * @return the reduction
+     */
+    static <S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>>
+            LevelReduction<C, ?> of(final WideningSelector<S,T,C> selector) {
+        if (selector instanceof ConcurrentSelector) {
+            return new Shared<>((ConcurrentSelector<S,T,C,?>) selector);
+        }
+        if (selector instanceof MergeableSelector) {
+            return new Merging<>((MergeableSelector<S,T,C,?>) selector);
+        }
+        return new Local<>(selector);
+    }
+
+    private static final class Local<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>>
+            extends LevelReduction<C, Local.Selections<C>> {
+
+        private final WideningSelector<S,T,C> m_selector;
+
+        Local(final WideningSelector<S,T,C> selector) {
+            m_selector = selector;
+        }
+
+        @Override
+        boolean isDecomposable() {
+            return false;
+        }
+
+        @Override
+        Selections<C> reduce(final Iterable<C> refined) {
+            final Selections<C> selections = new Selections<>();
+            selections.m_parts.add(m_selector.selectLocal(refined));
+            return selections;
+        }
+
+        @Override
+        Selections<C> combine(final Selections<C> left, final Selections<C> right) {
+            left.m_parts.addAll(right.m_parts);
+            return left;
+        }
+
+        @Override
+        Iterable<C> candidates(final Selections<C> result) {
+            // One flat compound, so the global selection takes turns between the local selections
+            // like in the sequential calculator
+            final CompoundIterable<C> all = new CompoundIterable<>();
+            for (final Iterable<C> part : result.m_parts) {
+                all.add(part);
+            }
+            return all;
+        }
+
+        /**
+         * Local selections in the order of the frontier.
+         */
+        static final class Selections<C> {
+            private final List<Iterable<C>> m_parts = new ArrayList<>();
+        }
+    }
+
+    private static final class Merging<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>, A>
+            extends LevelReduction<C, A> {
+
+        private final MergeableSelector<S,T,C,A> m_selector;
+
+        Merging(final MergeableSelector<S,T,C,A> selector) {
+            m_selector = selector;
+        }
+
+        @Override
+        A reduce(final Iterable<C> refined) {
+            final A state = m_selector.createState();
+            for (final C c : refined) {
+                m_selector.accumulate(state, c);
+            }
+            return state;
+        }
+
+        @Override
+        A combine(final A left, final A right) {
+            return m_selector.merge(left, right);
+        }
+
+        @Override
+        Iterable<C> candidates(final A result) {
+            return m_selector.finish(result);
+        }
+    }
+
+    private static final class Shared<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>, A>
+            extends LevelReduction<C, A> {
+
+        private final ConcurrentSelector<S,T,C,A> m_selector;
+        private final A m_state;
+
+        Shared(final ConcurrentSelector<S,T,C,A> selector) {
+            m_selector = selector;
+            m_state = selector.createState();
+        }
+
+        @Override
+        LevelReduction<C, A> forLevel() {
+            return new Shared<>(m_selector);
+        }
+
+        @Override
+        A reduce(final Iterable<C> refined) {
+            // All refinements of the level write into the same state
+            for (final C c : refined) {
+                m_selector.accumulate(m_state, c);
+            }
+            return m_state;
+        }
+
+        @Override
+        A combine(final A left, final A right) {
+            return m_state;
+        }
+
+        @Override
+        Iterable<C> candidates(final A result) {
+            return m_selector.finish(m_state);
+        }
+
+        @Override
+        Iterable<C> candidates(final List<A> results) {
+            return m_selector.finish(m_state);
+        }
+    }
+}
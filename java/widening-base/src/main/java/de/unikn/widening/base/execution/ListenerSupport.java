@@ -0,0 +1,83 @@
+package de.unikn.widening.base.execution;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.collections.MeasuredIterable;
+
+/**
+ * Measurements shared by the calculators for their {@link WideningListener}.
+ */
+final class ListenerSupport {
+
+    private ListenerSupport() {
+    }
+
+    /**
+     * Runs an action in the context of a run.
+     * @param context the context of the run if the action runs in another thread, otherwise null
+     * @param action the action
+     * @return the result of the action
+     */
+    static <R> R inContext(final WideningContext context, final Supplier<R> action) {
+        final WideningContext previous = context == null ? null : WideningContext.set(context);
+        try {
+            return action.get();
+        } finally {
+            if (context != null) {
+                WideningContext.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Refines and selects locally in the context of the run, reporting the measurements if there is a listener.
+     * @param listener the listener or null
+     * @param context the context of the run if the refinement runs in another thread, otherwise null
+     * @param level the level
+     * @param submitted when the refinement was submitted, in {@link System#nanoTime()}
+     * @param refine creates the candidates
+     * @param select selects from the candidates
+     * @return the result of the selection
+     */
+    static <S extends Comparable<S>, C, R> R refine(final WideningListener<S> listener,
+            final WideningContext context, final int level, final long submitted,
+            final Supplier<Iterable<C>> refine, final Function<Iterable<C>, R> select) {
+        // Workers report to listeners and JFR in the context of the run they work for
+        return inContext(context, () -> {
+            if (listener == null) {
+                return select.apply(refine.get());
+            }
+            // Candidates are usually created while the local selection iterates them, so both are timed together
+            final long start = System.nanoTime();
+            final MeasuredIterable<C> candidates = new MeasuredIterable<>(refine.get());
+            final R result = select.apply(candidates);
+            listener.refined(level, candidates.getCount(), System.nanoTime() - start, start - submitted);
+            return result;
+        });
+    }
+
+    /**
+     * Reports the result of a global selection.
+     * @param listener the listener, not null
+     * @param level the level
+     * @param candidates the candidates given to the global selection
+     * @param mergeNanos the time spent combining the local selections
+     * @param selectNanos the time spent in the global selection
+     * @param models the selected models
+     */
+    static <S extends Comparable<S>, T extends WideningModel<S>> void selected(final WideningListener<S> listener,
+            final int level, final MeasuredIterable<?> candidates, final long mergeNanos, final long selectNanos,
+            final Iterable<T> models) {
+        int count = 0;
+        S best = null;
+        for (final T m : models) {
+            count++;
+            if (best == null || m.getScore().compareTo(best) < 0) {
+                best = m.getScore();
+            }
+        }
+        listener.selected(level, candidates.getCount(), mergeNanos, selectNanos, count, best);
+    }
+}
@@ -4,50 +4,254 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
 
 import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.ConcurrentSelector;
+import de.unikn.widening.base.MergeableSelector;
+import de.unikn.widening.base.SplittableRefiner;
 import de.unikn.widening.base.WideningModel;
 import de.unikn.widening.base.WideningRefiner;
 import de.unikn.widening.base.WideningSelector;
-import de.unikn.widening.base.collections.CompoundIterable;
+import de.unikn.widening.base.collections.CancellableIterable;
+import de.unikn.widening.base.collections.MeasuredIterable;
 
 public class ParallelWideningCalculator<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>> {
 
     private final WideningRefiner<S,T,C> m_refiner;
     private final WideningSelector<S,T,C> m_selector;
     private final ExecutorService m_exec;
+    private final int m_parallelism;
+    private final LevelReduction<C,?> m_reduction;
+    private WideningListener<S> m_listener;
+    private Supplier<? extends TranspositionTable> m_tables;
+    private ToLongFunction<? super C> m_stateHash;
+    private ToLongFunction<? super T> m_modelHash;
 
     public ParallelWideningCalculator(final WideningRefiner<S,T,C> refiner,
                                         final WideningSelector<S,T,C> selector,
                                         final ExecutorService exec) {
+        this(refiner, selector, exec, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new calculator.
+     * @param refiner the refiner creating candidates from models
+     * @param selector the selector choosing the candidates to continue with
+     * @param exec the executor to run the refinement tasks in
+     * @param parallelism the number of tasks to create per level at least. If the refiner is a
+     *          {@link SplittableRefiner}, models are split into ranges when there are fewer models than this.
+     */
+    public ParallelWideningCalculator(final WideningRefiner<S,T,C> refiner,
+                                        final WideningSelector<S,T,C> selector,
+                                        final ExecutorService exec,
+                                        final int parallelism) {
         m_refiner = refiner;
         m_selector = selector;
         m_exec = exec;
+        m_parallelism = parallelism;
+        m_reduction = LevelReduction.of(selector);
+    }
+
+    /**
+     * @param listener the listener to report measurements of the levels to, null to not measure.
+     *          It is called from the refinement tasks as well.
+     */
+    public void setListener(final WideningListener<S> listener) {
+        m_listener = listener;
+    }
+
+    /**
+     * Drops candidates whose states were already selected in the same run.
+     * @param tables creates the transposition table of a run, null to keep duplicate states
+     * @param stateHash the 64 bit hash of the state of a candidate
+     * @param modelHash the 64 bit hash of the state of a model, equal to the hash of the candidates creating it
+     */
+    public void setTranspositionTable(final Supplier<? extends TranspositionTable> tables,
+            final ToLongFunction<? super C> stateHash, final ToLongFunction<? super T> modelHash) {
+        m_tables = tables;
+        m_stateHash = stateHash;
+        m_modelHash = modelHash;
     }
 
     public Optional<T> run(final T start) throws Exception {
+        return run(start, WideningBudget.unlimited());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * Refinement tasks still running when the budget runs out are cancelled.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     * @throws Exception when a refinement task fails
+     */
+    public Optional<T> run(final T start, final WideningBudget budget) throws Exception {
+        return run(start, budget, new Incumbent<>());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * Refinement tasks still running when the budget runs out are cancelled.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @param incumbent the best complete model found so far, updated during the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     * @throws Exception when a refinement task fails
+     */
+    public Optional<T> run(final T start, final WideningBudget budget, final Incumbent<S,T> incumbent)
+            throws Exception {
+        final long startTime = System.nanoTime();
+        // Refinements stop early when their task is cancelled or the time is up
+        final BooleanSupplier cancelled = () -> Thread.currentThread().isInterrupted() || budget.isTimeUp(startTime);
+        final TranspositionFilter<T, C> filter = TranspositionFilter.create(m_tables, m_stateHash, m_modelHash);
+        final UnaryOperator<Iterable<C>> prepare = refined -> {
+            final Iterable<C> unseen = TranspositionFilter.unseen(filter, refined);
+            return new CancellableIterable<>(unseen, cancelled);
+        };
         Iterable<T> models = Collections.singleton(start);
-        final List<Future<Iterable<C>>> tasks = new ArrayList<>();
-        for (;;) {
-            final CompoundIterable<C> newModels = new CompoundIterable<>();
-            for (final T m : models) {
-                if (!m.isDone()) {
-                    // Add a parallel task for refinement and selection
-                    tasks.add(m_exec.submit(() -> m_selector.selectLocal(m_refiner.refine(m))));
-                } else {
-                	return Optional.of(m);
+        final List<Future<?>> tasks = new ArrayList<>();
+        final WideningContext context = WideningContext.current();
+        int level = 0;
+        try {
+            for (;; level++) {
+                final List<T> frontier = new ArrayList<>();
+                boolean done = false;
+                for (final T m : models) {
+                    if (!m.isDone()) {
+                        frontier.add(m);
+                    } else {
+                        incumbent.offer(m);
+                        done = true;
+                    }
+                }
+                if (done || frontier.isEmpty()) {
+                    return incumbent.get();
                 }
+                if (budget.isExhausted(level, startTime)) {
+                    return incumbent.orBestOf(frontier);
+                }
+                if (m_listener != null) {
+                    m_listener.levelStarted(level, frontier.size());
+                }
+                try {
+                    models = TranspositionFilter.selected(filter, level(m_reduction.forLevel(), context, level,
+                            frontier, tasks, budget, startTime, prepare, filter));
+                } catch (final TimeoutException | CancellationException e) {
+                    return incumbent.orBestOf(frontier);
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        return incumbent.orBestOf(frontier);
+                    }
+                    throw e;
+                }
+                tasks.clear();
+            }
+        } finally {
+            // Do not leave refinements of an abandoned level running in the pool
+            for (Future<?> task : tasks) {
+                task.cancel(true);
             }
-            if (tasks.isEmpty()) {
-            	return Optional.empty();
+            if (m_listener != null) {
+                m_listener.runFinished(level, System.nanoTime() - startTime);
             }
-            for (Future<Iterable<C>> task : tasks) {
-                newModels.add(task.get());
+        }
+    }
+
+    private <R> Iterable<T> level(final LevelReduction<C,R> reduction, final WideningContext context,
+            final int level, final List<T> frontier,
+            final List<Future<?>> tasks, final WideningBudget budget, final long startTime,
+            final UnaryOperator<Iterable<C>> prepare, final TranspositionFilter<T, C> filter)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final List<R> parts = refine(reduction, context, level, frontier, tasks, budget, startTime, prepare);
+        final long mergeStart = System.nanoTime();
+        final Iterable<C> candidates =
+                TranspositionFilter.firstSeen(filter, merge(reduction, parts, tasks, budget, startTime));
+        if (m_listener == null) {
+            return m_selector.selectGlobal(candidates);
+        }
+        final MeasuredIterable<C> measured = new MeasuredIterable<>(candidates);
+        final long selectStart = System.nanoTime();
+        final Iterable<T> models = m_selector.selectGlobal(measured);
+        ListenerSupport.selected(m_listener, level, measured, selectStart - mergeStart,
+                System.nanoTime() - selectStart, models);
+        return models;
+    }
+
+    private <R> List<R> refine(final LevelReduction<C,R> reduction, final WideningContext context,
+            final int level, final List<T> frontier,
+            final List<Future<?>> tasks, final WideningBudget budget, final long startTime,
+            final UnaryOperator<Iterable<C>> prepare)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        final List<Future<R>> results = new ArrayList<>();
+        final int splits = (m_parallelism + frontier.size() - 1) / frontier.size();
+        for (final T m : frontier) {
+            final long submitted = System.nanoTime();
+            if (splits > 1 && m_refiner instanceof SplittableRefiner && reduction.isDecomposable()) {
+                // Split the refinement of the model into ranges
+                final SplittableRefiner<S,T,C> refiner = (SplittableRefiner<S,T,C>) m_refiner;
+                final int size = refiner.size(m);
+                for (int i = 0; i < splits; i++) {
+                    final int from = (int) ((long) size * i / splits);
+                    final int to = (int) ((long) size * (i + 1) / splits);
+                    if (from < to) {
+                        results.add(m_exec.submit(() -> ListenerSupport.refine(m_listener, context, level, submitted,
+                                () -> prepare.apply(refiner.refine(m, from, to)), reduction::reduce)));
+                    }
+                }
+            } else {
+                // Add a parallel task for refinement and selection
+                results.add(m_exec.submit(() -> ListenerSupport.refine(m_listener, context, level, submitted,
+                        () -> prepare.apply(m_refiner.refine(m)), reduction::reduce)));
+            }
+        }
+        tasks.addAll(results);
+
+        final List<R> parts = new ArrayList<>(results.size());
+        for (final Future<R> result : results) {
+            parts.add(result.get(budget.remaining(startTime), TimeUnit.NANOSECONDS));
+        }
+        return parts;
+    }
+
+    private <R> Iterable<C> merge(final LevelReduction<C,R> reduction, final List<R> refined,
+            final List<Future<?>> tasks, final WideningBudget budget, final long startTime)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        List<R> parts = refined;
+        if (parts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (m_selector instanceof MergeableSelector && !(m_selector instanceof ConcurrentSelector)) {
+            // Merge the selection states pairwise in parallel
+            while (parts.size() > 2) {
+                final List<Future<R>> merged = new ArrayList<>();
+                for (int i = 0; i + 1 < parts.size(); i += 2) {
+                    final R left = parts.get(i);
+                    final R right = parts.get(i + 1);
+                    merged.add(m_exec.submit(() -> reduction.combine(left, right)));
+                }
+                tasks.addAll(merged);
+                final List<R> next = new ArrayList<>(merged.size() + 1);
+                for (final Future<R> m : merged) {
+                    next.add(m.get(budget.remaining(startTime), TimeUnit.NANOSECONDS));
+                }
+                if (parts.size() % 2 == 1) {
+                    next.add(parts.get(parts.size() - 1));
+                }
+                parts = next;
             }
-            tasks.clear();
-            models = m_selector.selectGlobal(newModels);
         }
+        return reduction.candidates(parts);
     }
 }
@@ -0,0 +1,328 @@
+package de.unikn.widening.base.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.MergeableSelector;
+import de.unikn.widening.base.SplittableRefiner;
+import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.WideningRefiner;
+import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.collections.CancellableIterable;
+import de.unikn.widening.base.collections.MeasuredIterable;
+
+/**
+ * Widening calculator that streams the local selections of a level into the global selection.
+ * A fixed number of workers refine the models of a level and hand their local selections to the
+ * calling thread through a bounded queue. Workers wait while the queue is full, and the calling
+ * thread merges each arriving state of a {@link MergeableSelector} with the ones before it right away.
+ * This way at most a few selection states per worker exist at any time, instead of all states of the
+ * level. The local selections of other selectors are concatenated in the order of the frontier.
+ */
+public class PipelinedWideningCalculator<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>> {
+
+    // How long a worker waits for room in the queue before checking whether the level was abandoned
+    private static final long HAND_OFF_WAIT_MILLIS = 10;
+
+    private final WideningRefiner<S,T,C> m_refiner;
+    private final WideningSelector<S,T,C> m_selector;
+    private final ExecutorService m_exec;
+    private final int m_workers;
+    private final LevelReduction<C,?> m_reduction;
+    private WideningListener<S> m_listener;
+    private Supplier<? extends TranspositionTable> m_tables;
+    private ToLongFunction<? super C> m_stateHash;
+    private ToLongFunction<? super T> m_modelHash;
+
+    /**
+     * Creates a new calculator using one worker per available processor.
+     * @param refiner the refiner creating candidates from models
+     * @param selector the selector choosing the candidates to continue with
+     * @param exec the executor to run the workers in
+     */
+    public PipelinedWideningCalculator(final WideningRefiner<S,T,C> refiner,
+                                        final WideningSelector<S,T,C> selector,
+                                        final ExecutorService exec) {
+        this(refiner, selector, exec, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new calculator.
+     * @param refiner the refiner creating candidates from models
+     * @param selector the selector choosing the candidates to continue with
+     * @param exec the executor to run the workers in
+     * @param workers the number of refinement workers, also the capacity of the queue
+     */
+    public PipelinedWideningCalculator(final WideningRefiner<S,T,C> refiner,
+                                        final WideningSelector<S,T,C> selector,
+                                        final ExecutorService exec,
+                                        final int workers) {
+        m_refiner = refiner;
+        m_selector = selector;
+        m_exec = exec;
+        m_workers = workers;
+        m_reduction = LevelReduction.of(selector);
+    }
+
+    /**
+     * @param listener the listener to report measurements of the levels to, null to not measure.
+     *          It is called from the workers as well.
+     */
+    public void setListener(final WideningListener<S> listener) {
+        m_listener = listener;
+    }
+
+    /**
+     * Drops candidates whose states were already selected in the same run.
+     * @param tables creates the transposition table of a run, null to keep duplicate states
+     * @param stateHash the 64 bit hash of the state of a candidate
+     * @param modelHash the 64 bit hash of the state of a model, equal to the hash of the candidates creating it
+     */
+    public void setTranspositionTable(final Supplier<? extends TranspositionTable> tables,
+            final ToLongFunction<? super C> stateHash, final ToLongFunction<? super T> modelHash) {
+        m_tables = tables;
+        m_stateHash = stateHash;
+        m_modelHash = modelHash;
+    }
+
+    public Optional<T> run(final T start) throws Exception {
+        return run(start, WideningBudget.unlimited());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     * @throws Exception when a worker fails
+     */
+    public Optional<T> run(final T start, final WideningBudget budget) throws Exception {
+        return run(start, budget, new Incumbent<>());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * Workers still running when the budget runs out are cancelled.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @param incumbent the best complete model found so far, updated during the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     * @throws Exception when a worker fails
+     */
+    public Optional<T> run(final T start, final WideningBudget budget, final Incumbent<S,T> incumbent)
+            throws Exception {
+        final long startTime = System.nanoTime();
+        final TranspositionFilter<T, C> filter = TranspositionFilter.create(m_tables, m_stateHash, m_modelHash);
+        final WideningContext context = WideningContext.current();
+        Iterable<T> models = Collections.singleton(start);
+        int level = 0;
+        try {
+            for (;; level++) {
+                final List<T> frontier = new ArrayList<>();
+                boolean done = false;
+                for (final T m : models) {
+                    if (m.isDone()) {
+                        incumbent.offer(m);
+                        done = true;
+                    } else {
+                        frontier.add(m);
+                    }
+                }
+                if (done || frontier.isEmpty()) {
+                    return incumbent.get();
+                }
+                if (budget.isExhausted(level, startTime)) {
+                    return incumbent.orBestOf(frontier);
+                }
+                if (m_listener != null) {
+                    m_listener.levelStarted(level, frontier.size());
+                }
+                try {
+                    models = TranspositionFilter.selected(filter,
+                            level(m_reduction.forLevel(), context, level, frontier, filter, budget, startTime));
+                } catch (final TimeoutException | CancellationException e) {
+                    return incumbent.orBestOf(frontier);
+                } catch (final ExecutionException e) {
+                    if (e.getCause() instanceof CancellationException) {
+                        return incumbent.orBestOf(frontier);
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            if (m_listener != null) {
+                m_listener.runFinished(level, System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    private <R> Iterable<T> level(final LevelReduction<C,R> reduction, final WideningContext context,
+            final int level, final List<T> frontier, final TranspositionFilter<T, C> filter,
+            final WideningBudget budget, final long startTime) throws Exception {
+        final long[] mergeNanos = new long[1];
+        final Iterable<C> candidates = TranspositionFilter.firstSeen(filter,
+                refine(reduction, context, level, frontier, filter, budget, startTime, mergeNanos));
+        if (m_listener == null) {
+            return m_selector.selectGlobal(candidates);
+        }
+        final MeasuredIterable<C> measured = new MeasuredIterable<>(candidates);
+        final long selectStart = System.nanoTime();
+        final Iterable<T> models = m_selector.selectGlobal(measured);
+        ListenerSupport.selected(m_listener, level, measured, mergeNanos[0], System.nanoTime() - selectStart,
+                models);
+        return models;
+    }
+
+    private <R> Iterable<C> refine(final LevelReduction<C,R> reduction, final WideningContext context,
+            final int level, final List<T> frontier, final TranspositionFilter<T, C> filter,
+            final WideningBudget budget, final long startTime, final long[] mergeNanos) throws Exception {
+        final List<Supplier<Iterable<C>>> work = split(frontier, reduction.isDecomposable());
+        if (work.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final int workers = Math.min(m_workers, work.size());
+        final AtomicInteger next = new AtomicInteger();
+        final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(workers);
+        // Every worker signals with this marker that it has no more results
+        final Object end = new Object();
+        // Set when the level is abandoned, so workers neither refine nor wait for the queue anymore
+        final AtomicBoolean abandoned = new AtomicBoolean();
+        final BooleanSupplier cancelled = () -> abandoned.get() || budget.isTimeUp(startTime);
+
+        final List<Future<?>> tasks = new ArrayList<>(workers);
+        try {
+            for (int w = 0; w < workers; w++) {
+                final long submitted = System.nanoTime();
+                tasks.add(m_exec.submit(() -> {
+                    try {
+                        for (int i = next.getAndIncrement(); i < work.size(); i = next.getAndIncrement()) {
+                            final Supplier<Iterable<C>> refined = work.get(i);
+                            final R local = ListenerSupport.refine(m_listener, context, level, submitted,
+                                    () -> new CancellableIterable<>(TranspositionFilter.unseen(filter, refined.get()),
+                                            cancelled),
+                                    reduction::reduce);
+                            hand(queue, new Result<>(i, local), abandoned);
+                        }
+                    } finally {
+                        hand(queue, end, abandoned);
+                    }
+                    return null;
+                }));
+            }
+
+            R selected = null;
+            // Results that have to be combined in the order of the frontier
+            final List<R> ordered = new ArrayList<>(Collections.nCopies(work.size(), (R) null));
+            for (int finished = 0; finished < workers;) {
+                final Object arrived = queue.poll(budget.remaining(startTime), TimeUnit.NANOSECONDS);
+                if (arrived == null) {
+                    throw new TimeoutException();
+                }
+                if (arrived == end) {
+                    finished++;
+                    continue;
+                }
+                @SuppressWarnings("unchecked")
+                final Result<R> result = (Result<R>) arrived;
+                if (!reduction.isDecomposable()) {
+                    ordered.set(result.m_index, result.m_value);
+                } else {
+                    // Reduce right away so only one result is kept between arrivals
+                    final long mergeStart = System.nanoTime();
+                    selected = selected == null ? result.m_value : reduction.combine(selected, result.m_value);
+                    mergeNanos[0] += System.nanoTime() - mergeStart;
+                }
+            }
+            // Propagate failures of the workers
+            for (final Future<?> task : tasks) {
+                task.get();
+            }
+            final long mergeStart = System.nanoTime();
+            final Iterable<C> candidates;
+            if (!reduction.isDecomposable()) {
+                candidates = reduction.candidates(ordered);
+            } else {
+                candidates = selected == null ? Collections.emptyList() : reduction.candidates(selected);
+            }
+            mergeNanos[0] += System.nanoTime() - mergeStart;
+            return candidates;
+        } finally {
+            // Workers of an abandoned level stop refining and give up handing results to the queue
+            abandoned.set(true);
+            for (final Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            queue.clear();
+        }
+    }
+
+    /**
+     * Puts a result into the queue, waiting while it is full unless the level was abandoned.
+     * Never blocks for good, even when interrupted or when nobody takes from the queue anymore.
+     */
+    private static void hand(final BlockingQueue<Object> queue, final Object result, final AtomicBoolean abandoned) {
+        while (!abandoned.get()) {
+            try {
+                if (queue.offer(result, HAND_OFF_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (final InterruptedException e) {
+                // Cancelled, the consumer is gone or about to stop
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private List<Supplier<Iterable<C>>> split(final List<T> frontier, final boolean ranges) {
+        final List<Supplier<Iterable<C>>> work = new ArrayList<>();
+        final int splits = (m_workers + frontier.size() - 1) / frontier.size();
+        for (final T m : frontier) {
+            if (ranges && splits > 1 && m_refiner instanceof SplittableRefiner) {
+                final SplittableRefiner<S,T,C> refiner = (SplittableRefiner<S,T,C>) m_refiner;
+                final int size = refiner.size(m);
+                for (int i = 0; i < splits; i++) {
+                    final int from = (int) ((long) size * i / splits);
+                    final int to = (int) ((long) size * (i + 1) / splits);
+                    if (from < to) {
+                        work.add(() -> refiner.refine(m, from, to));
+                    }
+                }
+            } else {
+                work.add(() -> m_refiner.refine(m));
+            }
+        }
+        return work;
+    }
+
+    /**
+     * The result of a piece of work and its position in the level.
+     */
+    private static final class Result<R> {
+        private final int m_index;
+        private final R m_value;
+
+        Result(final int index, final R value) {
+            m_index = index;
+            m_value = value;
+        }
+    }
+}
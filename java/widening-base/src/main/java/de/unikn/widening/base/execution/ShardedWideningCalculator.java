@@ -0,0 +1,311 @@
+package de.unikn.widening.base.execution;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToIntFunction;
+
+import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.WideningRefiner;
+import de.unikn.widening.base.WideningSelector;
+
+/**
+ * Widening calculator for bucket selectors that assign candidates to buckets deterministically, e.g. by their hash.
+ * Every bucket is owned by one worker, and every worker keeps the models selected for its buckets as its
+ * own part of the frontier. Workers refine their part, apply the local selection and send the selected
+ * candidates to the inboxes of the workers owning their buckets. Each worker then applies the global
+ * selection to its inbox only, so there is no central global selection.
+ * <p>
+ * The result equals that of a global selection as long as the selection of a bucket only depends on the
+ * candidates assigned to it. The workers wait for each other twice per level, so the executor needs
+ * at least as many threads as there are workers. A worker waiting longer than the barrier timeout fails
+ * the run instead of waiting forever for workers the executor never started.
+ */
+public class ShardedWideningCalculator<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>> {
+
+    private final WideningRefiner<S,T,C> m_refiner;
+    private final WideningSelector<S,T,C> m_selector;
+    private final ToIntFunction<C> m_bucket;
+    private final ExecutorService m_exec;
+    private final int m_workers;
+    private long m_barrierTimeout = TimeUnit.MINUTES.toNanos(10);
+    private WideningListener<S> m_listener;
+
+    /**
+     * Creates a new calculator using one worker per thread the executor is guaranteed to run at once.
+     * @param refiner the refiner creating candidates from models
+     * @param selector the selector choosing the candidates to continue with
+     * @param bucket the bucket the selector assigns a candidate to
+     * @param exec the executor to run the workers in, a {@link ForkJoinPool} or a {@link ThreadPoolExecutor}
+     * @throws IllegalArgumentException if the number of threads of the executor is unknown
+     */
+    public ShardedWideningCalculator(final WideningRefiner<S,T,C> refiner,
+                                        final WideningSelector<S,T,C> selector,
+                                        final ToIntFunction<C> bucket,
+                                        final ExecutorService exec) {
+        this(refiner, selector, bucket, exec, Math.min(threads(exec), Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Creates a new calculator.
+     * @param refiner the refiner creating candidates from models
+     * @param selector the selector choosing the candidates to continue with
+     * @param bucket the bucket the selector assigns a candidate to
+     * @param exec the executor to run the workers in
+     * @param workers the number of workers, each owning every <code>workers</code>-th bucket
+     * @throws IllegalArgumentException if there are no workers or the executor cannot run them all at once
+     */
+    public ShardedWideningCalculator(final WideningRefiner<S,T,C> refiner,
+                                        final WideningSelector<S,T,C> selector,
+                                        final ToIntFunction<C> bucket,
+                                        final ExecutorService exec,
+                                        final int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Need at least one worker, not " + workers);
+        }
+        if ((exec instanceof ForkJoinPool || exec instanceof ThreadPoolExecutor) && threads(exec) < workers) {
+            throw new IllegalArgumentException("The executor runs " + threads(exec) + " tasks at once, "
+                    + workers + " workers would wait for each other forever");
+        }
+        m_refiner = refiner;
+        m_selector = selector;
+        m_bucket = bucket;
+        m_exec = exec;
+        m_workers = workers;
+    }
+
+    /**
+     * @param exec an executor
+     * @return the number of tasks the executor is guaranteed to run at once
+     */
+    private static int threads(final ExecutorService exec) {
+        if (exec instanceof ForkJoinPool) {
+            return ((ForkJoinPool) exec).getParallelism();
+        }
+        if (exec instanceof ThreadPoolExecutor) {
+            final ThreadPoolExecutor pool = (ThreadPoolExecutor) exec;
+            // Threads beyond the core size are only started when the queue rejects a task
+            return pool.getQueue().remainingCapacity() == 0
+                    ? Math.max(pool.getCorePoolSize(), pool.getMaximumPoolSize()) : pool.getCorePoolSize();
+        }
+        throw new IllegalArgumentException("Cannot tell how many tasks " + exec
+                + " runs at once, give the number of workers");
+    }
+
+    /**
+     * Sets how long a worker waits for the others at the end of a step of a level before the run fails.
+     * @param timeout the longest wait, 10 minutes by default
+     * @param unit the unit of the timeout
+     */
+    public void setBarrierTimeout(final long timeout, final TimeUnit unit) {
+        m_barrierTimeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * @param listener the listener to report measurements of the levels to, null to not measure.
+     *          Refinements are reported from the workers, and the global selections of the workers are reported
+     *          as one selection per level, timed by the slowest worker.
+     */
+    public void setListener(final WideningListener<S> listener) {
+        m_listener = listener;
+    }
+
+    public Optional<T> run(final T start) throws Exception {
+        return run(start, WideningBudget.unlimited());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * The budget is checked between levels.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     * @throws Exception when a worker fails
+     */
+    public Optional<T> run(final T start, final WideningBudget budget) throws Exception {
+        final long startTime = System.nanoTime();
+        final Incumbent<S,T> incumbent = new Incumbent<>();
+        if (start.isDone()) {
+            incumbent.offer(start);
+            return incumbent.get();
+        }
+
+        final List<Queue<C>> inboxes = new ArrayList<>(m_workers);
+        final List<List<T>> parts = new ArrayList<>(m_workers);
+        for (int w = 0; w < m_workers; w++) {
+            inboxes.add(new ConcurrentLinkedQueue<>());
+            parts.add(w == 0 ? Collections.singletonList(start) : Collections.emptyList());
+        }
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicBoolean exhausted = new AtomicBoolean();
+        final AtomicBoolean stop = new AtomicBoolean();
+        // The first failure that broke the barriers, rather than the workers released by it
+        final AtomicReference<Throwable> cause = new AtomicReference<>();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final int[] level = new int[1];
+        // The candidates and selection times of the workers in the current level, only used with a listener
+        final long[] kept = new long[m_workers];
+        final long[] selectNanos = new long[m_workers];
+
+        final CyclicBarrier routed = new CyclicBarrier(m_workers);
+        // The last worker to finish its selection decides whether to go on, while all others wait
+        final CyclicBarrier selected = new CyclicBarrier(m_workers, () -> {
+            int size = 0;
+            for (final List<T> part : parts) {
+                size += part.size();
+            }
+            if (m_listener != null) {
+                reportSelected(level[0], kept, selectNanos, parts);
+            }
+            exhausted.set(budget.isExhausted(++level[0], startTime));
+            stop.set(done.get() || size == 0 || exhausted.get());
+            if (m_listener != null && !stop.get()) {
+                m_listener.levelStarted(level[0], size);
+            }
+        });
+
+        // Workers report JFR events in the context of this run
+        final WideningContext context = WideningContext.current();
+        final List<Future<?>> tasks = new ArrayList<>(m_workers);
+        if (m_listener != null) {
+            m_listener.levelStarted(0, 1);
+        }
+        try {
+            for (int w = 0; w < m_workers; w++) {
+                final int worker = w;
+                tasks.add(m_exec.submit(() -> {
+                    if (failed.get()) {
+                        // Started after another worker failed, there is nobody left to wait for
+                        return null;
+                    }
+                    final WideningContext previous = WideningContext.set(context);
+                    try {
+                        do {
+                            for (final T m : parts.get(worker)) {
+                                final Iterable<C> local = ListenerSupport.refine(m_listener, null, level[0],
+                                        System.nanoTime(), () -> m_refiner.refine(m), m_selector::selectLocal);
+                                for (final C c : local) {
+                                    inboxes.get(Math.floorMod(m_bucket.applyAsInt(c), m_workers)).add(c);
+                                }
+                            }
+                            await(routed, failed);
+
+                            final long selectStart = System.nanoTime();
+                            final List<C> candidates = new ArrayList<>(inboxes.get(worker));
+                            inboxes.get(worker).clear();
+                            final List<T> next = new ArrayList<>();
+                            if (!candidates.isEmpty()) {
+                                for (final T m : m_selector.selectGlobal(candidates)) {
+                                    if (m.isDone()) {
+                                        incumbent.offer(m);
+                                        done.set(true);
+                                    }
+                                    next.add(m);
+                                }
+                            }
+                            parts.set(worker, next);
+                            kept[worker] = candidates.size();
+                            selectNanos[worker] = System.nanoTime() - selectStart;
+                            await(selected, failed);
+                        } while (!stop.get());
+                    } catch (final Exception | Error e) {
+                        if (!(e instanceof BrokenBarrierException || e instanceof InterruptedException)) {
+                            cause.compareAndSet(null, e);
+                        }
+                        failed.set(true);
+                        // Release the other workers instead of letting them wait for this one
+                        routed.reset();
+                        selected.reset();
+                        throw e;
+                    } finally {
+                        WideningContext.set(previous);
+                    }
+                    return null;
+                }));
+            }
+            ExecutionException failure = null;
+            for (final Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (final ExecutionException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw cause.get() == null ? failure : new ExecutionException(cause.get());
+            }
+        } finally {
+            for (final Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            if (m_listener != null) {
+                m_listener.runFinished(level[0], System.nanoTime() - startTime);
+            }
+        }
+
+        if (exhausted.get() && !done.get()) {
+            final List<T> frontier = new ArrayList<>();
+            for (final List<T> part : parts) {
+                frontier.addAll(part);
+            }
+            return incumbent.orBestOf(frontier);
+        }
+        return incumbent.get();
+    }
+
+    /**
+     * Reports the global selections of all workers in a level as one selection.
+     */
+    private void reportSelected(final int level, final long[] kept, final long[] selectNanos,
+            final List<List<T>> parts) {
+        long candidates = 0;
+        long nanos = 0;
+        int models = 0;
+        S best = null;
+        for (int w = 0; w < m_workers; w++) {
+            candidates += kept[w];
+            // The workers select at the same time, so the level waits for the slowest one
+            nanos = Math.max(nanos, selectNanos[w]);
+            for (final T m : parts.get(w)) {
+                models++;
+                if (best == null || m.getScore().compareTo(best) < 0) {
+                    best = m.getScore();
+                }
+            }
+        }
+        m_listener.selected(level, candidates, 0, nanos, models, best);
+    }
+
+    private void await(final CyclicBarrier barrier, final AtomicBoolean failed)
+            throws InterruptedException, BrokenBarrierException {
+        if (failed.get()) {
+            // The barrier was reset after the failure, waiting at it would only time out
+            throw new BrokenBarrierException();
+        }
+        try {
+            barrier.await(m_barrierTimeout, TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            throw new IllegalStateException("Not all of the " + m_workers + " workers reached the barrier within "
+                    + TimeUnit.NANOSECONDS.toMillis(m_barrierTimeout) + " ms, does the executor run them all at once?",
+                    e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package de.unikn.widening.base.execution;
+
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import de.unikn.widening.base.collections.FilteredIterable;
+
+/**
+ * Drops candidates whose states were selected before, using a {@link TranspositionTable} per run.
+ * Only the states of the models returned by global selections are added to the table. Refined candidates
+ * are checked against it before the local selection, and the candidates reaching the global selection are
+ * checked against it again and against the states given to the same global selection before, so a state
+ * reached from several parents of a level is only selected once.
+ */
+final class TranspositionFilter<T, C> {
+
+    private final TranspositionTable m_table;
+    private final ToLongFunction<? super C> m_hash;
+    private final ToLongFunction<? super T> m_modelHash;
+
+    private TranspositionFilter(final TranspositionTable table, final ToLongFunction<? super C> hash,
+            final ToLongFunction<? super T> modelHash) {
+        m_table = table;
+        m_hash = hash;
+        m_modelHash = modelHash;
+    }
+
+    /**
+     * @param tables creates the table of a run, may be null
+     * @param hash the state hash of a candidate
+     * @param modelHash the state hash of a model, equal to the hash of the candidates creating it
+     * @return a filter with a new table or null if there are no tables
+     */
+    static <T, C> TranspositionFilter<T, C> create(final Supplier<? extends TranspositionTable> tables,
+            final ToLongFunction<? super C> hash, final ToLongFunction<? super T> modelHash) {
+        return tables == null ? null : new TranspositionFilter<>(tables.get(), hash, modelHash);
+    }
+
+    /**
+     * @param filter the filter of the run or null
+     * @param refined the candidates of a refinement
+     * @return the candidates whose states were not selected before
+     */
+    static <C> Iterable<C> unseen(final TranspositionFilter<?, C> filter, final Iterable<C> refined) {
+        return filter == null ? refined : new FilteredIterable<>(refined,
+                c -> !filter.m_table.contains(filter.m_hash.applyAsLong(c)));
+    }
+
+    /**
+     * Removes the candidates given to a global selection whose states were selected before or are repeated
+     * within the level. The candidates are filtered while the selection iterates them.
+     * @param filter the filter of the run or null
+     * @param candidates the candidates for the global selection
+     * @return the first candidate of every state not selected before
+     */
+    static <C> Iterable<C> firstSeen(final TranspositionFilter<?, C> filter, final Iterable<C> candidates) {
+        if (filter == null) {
+            return candidates;
+        }
+        return () -> {
+            // A new set per iteration, so iterating the candidates again returns the same candidates
+            final LevelStates level = new LevelStates();
+            return new FilteredIterable<>(candidates, c -> {
+                final long hash = filter.m_hash.applyAsLong(c);
+                return !filter.m_table.contains(hash) && level.add(hash);
+            }).iterator();
+        };
+    }
+
+    /**
+     * Adds the states of the models returned by a global selection to the table.
+     * @param filter the filter of the run or null
+     * @param models the selected models
+     * @return the models
+     */
+    static <T> Iterable<T> selected(final TranspositionFilter<T, ?> filter, final Iterable<T> models) {
+        if (filter != null) {
+            for (final T m : models) {
+                filter.m_table.add(filter.m_modelHash.applyAsLong(m));
+            }
+        }
+        return models;
+    }
+
+    /**
+     * Growing open addressing set of the state hashes seen by one global selection.
+     */
+    private static final class LevelStates {
+
+        private long[] m_hashes = new long[64];
+        // Hash 0 is not stored in the table, since 0 marks free slots
+        private boolean m_zero;
+        private int m_size;
+
+        /**
+         * @param hash a state hash
+         * @return true if the hash was added, false if it was seen before
+         */
+        boolean add(final long hash) {
+            if (hash == 0) {
+                final boolean added = !m_zero;
+                m_zero = true;
+                return added;
+            }
+            final int mask = m_hashes.length - 1;
+            int i = (int) TranspositionTable.mix(hash) & mask;
+            while (m_hashes[i] != 0) {
+                if (m_hashes[i] == hash) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            m_hashes[i] = hash;
+            // At most half full, so probe sequences stay short
+            if (++m_size << 1 > m_hashes.length) {
+                grow();
+            }
+            return true;
+        }
+
+        private void grow() {
+            final long[] old = m_hashes;
+            m_hashes = new long[old.length << 1];
+            final int mask = m_hashes.length - 1;
+            for (final long hash : old) {
+                if (hash != 0) {
+                    int i = (int) TranspositionTable.mix(hash) & mask;
+                    while (m_hashes[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    m_hashes[i] = hash;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package de.unikn.widening.base.execution;
+
+/**
+ * Remembers the 64 bit hashes of the states a widening run has already selected, so that candidates
+ * reaching the same state through different parents can be dropped before the selection.
+ * Implementations may forget states or report states as seen that were not, but they must be safe
+ * for use by several threads.
+ */
+public interface TranspositionTable {
+
+    /**
+     * @param hash the hash of a state
+     * @return true if the state was probably added before
+     */
+    boolean contains(long hash);
+
+    /**
+     * Adds a state.
+     * @param hash the hash of the state
+     * @return true if the state was probably not contained before
+     */
+    boolean add(long hash);
+
+    /**
+     * Spreads the bits of a state hash, so weak hashes can be used to index tables.
+     * @param hash the hash of a state
+     * @return the mixed hash
+     */
+    static long mix(final long hash) {
+        long h = hash;
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
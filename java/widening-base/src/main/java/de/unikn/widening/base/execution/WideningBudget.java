@@ -0,0 +1,125 @@
+package de.unikn.widening.base.execution;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A budget limiting the time and number of levels of a widening run.
+ * Use {@link #builder()} to create a budget or {@link #unlimited()} for runs that only end when a model is done.
+ */
+public final class WideningBudget {
+
+    private static final WideningBudget UNLIMITED = new WideningBudget(Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final long m_timeLimit;
+
+    private final int m_maxLevels;
+
+    private WideningBudget(final long timeLimit, final int maxLevels) {
+        m_timeLimit = timeLimit;
+        m_maxLevels = maxLevels;
+    }
+
+    /**
+     * @return a budget that never runs out
+     */
+    public static WideningBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @return a {@link WideningBudgetBuilder} to create a budget
+     */
+    public static WideningBudgetBuilder builder() {
+        return new WideningBudgetBuilder();
+    }
+
+    /**
+     * @return true if the budget limits the run time
+     */
+    public boolean hasTimeLimit() {
+        return m_timeLimit != Long.MAX_VALUE;
+    }
+
+    /**
+     * @param unit the unit to return the time limit in
+     * @return the time limit of a run
+     */
+    public long getTimeLimit(final TimeUnit unit) {
+        return unit.convert(m_timeLimit, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the maximum number of levels a run may refine
+     */
+    public int getMaxLevels() {
+        return m_maxLevels;
+    }
+
+    /**
+     * Returns the time left for a run.
+     * @param start the start of the run as given by {@link System#nanoTime()}
+     * @return the remaining time in nanoseconds, zero or less if the time is up
+     */
+    public long remaining(final long start) {
+        return hasTimeLimit() ? m_timeLimit - (System.nanoTime() - start) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param start the start of the run as given by {@link System#nanoTime()}
+     * @return true if the time limit of a run has passed
+     */
+    public boolean isTimeUp(final long start) {
+        return hasTimeLimit() && System.nanoTime() - start >= m_timeLimit;
+    }
+
+    /**
+     * @param level the number of levels refined so far
+     * @param start the start of the run as given by {@link System#nanoTime()}
+     * @return true if no further level may be refined
+     */
+    public boolean isExhausted(final int level, final long start) {
+        return level >= m_maxLevels || isTimeUp(start);
+    }
+
+    /**
+     * A builder for a {@link WideningBudget}.
+     */
+    public static final class WideningBudgetBuilder {
+
+        private long m_timeLimit = Long.MAX_VALUE;
+
+        private int m_maxLevels = Integer.MAX_VALUE;
+
+        private WideningBudgetBuilder() {
+        }
+
+        /**
+         * Sets the time after which a run returns its best model.
+         * @param time the time limit
+         * @param unit the unit of the time limit
+         * @return this <code>WideningBudgetBuilder</code>
+         */
+        public WideningBudgetBuilder timeLimit(final long time, final TimeUnit unit) {
+            m_timeLimit = unit.toNanos(time);
+            return this;
+        }
+
+        /**
+         * Sets the number of levels after which a run returns its best model.
+         * @param maxLevels the maximum number of levels
+         * @return this <code>WideningBudgetBuilder</code>
+         */
+        public WideningBudgetBuilder maxLevels(final int maxLevels) {
+            m_maxLevels = maxLevels;
+            return this;
+        }
+
+        /**
+         * Builds the budget.
+         * @return a {@link WideningBudget}
+         */
+        public WideningBudget build() {
+            return new WideningBudget(m_timeLimit, m_maxLevels);
+        }
+    }
+}
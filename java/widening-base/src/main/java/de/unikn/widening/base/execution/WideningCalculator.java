@@ -1,39 +1,136 @@
 package de.unikn.widening.base.execution;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 
 import de.unikn.widening.base.Candidate;
 import de.unikn.widening.base.WideningModel;
 import de.unikn.widening.base.WideningRefiner;
 import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.collections.CancellableIterable;
 import de.unikn.widening.base.collections.CompoundIterable;
+import de.unikn.widening.base.collections.MeasuredIterable;
 
 public class WideningCalculator<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>> {
 
     private final WideningRefiner<S,T,C> m_refiner;
     private final WideningSelector<S,T,C> m_selector;
+    private WideningListener<S> m_listener;
+    private Supplier<? extends TranspositionTable> m_tables;
+    private ToLongFunction<? super C> m_stateHash;
+    private ToLongFunction<? super T> m_modelHash;
 
     public WideningCalculator(final WideningRefiner<S,T,C> refiner, final WideningSelector<S,T,C> selector) {
         m_refiner = refiner;
         m_selector = selector;
     }
 
+    /**
+     * @param listener the listener to report measurements of the levels to, null to not measure
+     */
+    public void setListener(final WideningListener<S> listener) {
+        m_listener = listener;
+    }
+
+    /**
+     * Drops candidates whose states were already selected in the same run.
+     * @param tables creates the transposition table of a run, null to keep duplicate states
+     * @param stateHash the 64 bit hash of the state of a candidate
+     * @param modelHash the 64 bit hash of the state of a model, equal to the hash of the candidates creating it
+     */
+    public void setTranspositionTable(final Supplier<? extends TranspositionTable> tables,
+            final ToLongFunction<? super C> stateHash, final ToLongFunction<? super T> modelHash) {
+        m_tables = tables;
+        m_stateHash = stateHash;
+        m_modelHash = modelHash;
+    }
+
     public Optional<T> run(final T start) {
+        return run(start, WideningBudget.unlimited());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     */
+    public Optional<T> run(final T start, final WideningBudget budget) {
+        return run(start, budget, new Incumbent<>());
+    }
+
+    /**
+     * Runs the widening until a model is done or the budget runs out.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @param incumbent the best complete model found so far, updated during the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     */
+    public Optional<T> run(final T start, final WideningBudget budget, final Incumbent<S,T> incumbent) {
+        final long startTime = System.nanoTime();
+        final TranspositionFilter<T, C> filter = TranspositionFilter.create(m_tables, m_stateHash, m_modelHash);
         Iterable<T> models = Collections.singleton(start);
-        for (;;) {
-            final CompoundIterable<C> newModels = new CompoundIterable<>();
-            for (final T m : models) {
-                if (!m.isDone()) {
-                    // Refine and add to our full list of models
-                    final Iterable<C> nm = m_selector.selectLocal(m_refiner.refine(m));
-                    newModels.add(nm);
-                } else {
-                    return Optional.of(m);
+        int level = 0;
+        try {
+            for (;; level++) {
+                final List<T> frontier = new ArrayList<>();
+                boolean done = false;
+                for (final T m : models) {
+                    if (m.isDone()) {
+                        incumbent.offer(m);
+                        done = true;
+                    } else {
+                        frontier.add(m);
+                    }
+                }
+                if (done || frontier.isEmpty()) {
+                    return incumbent.get();
+                }
+                if (budget.isExhausted(level, startTime)) {
+                    return incumbent.orBestOf(frontier);
+                }
+                if (m_listener != null) {
+                    m_listener.levelStarted(level, frontier.size());
+                }
+                final CompoundIterable<C> newModels = new CompoundIterable<>();
+                try {
+                    for (final T m : frontier) {
+                        // Refine and add to our full list of models
+                        newModels.add(ListenerSupport.refine(m_listener, null, level, System.nanoTime(), () -> {
+                            final Iterable<C> refined = TranspositionFilter.unseen(filter, m_refiner.refine(m));
+                            return budget.hasTimeLimit()
+                                    ? new CancellableIterable<>(refined, () -> budget.isTimeUp(startTime)) : refined;
+                        }, m_selector::selectLocal));
+                    }
+                    // Select k models
+                    models = TranspositionFilter.selected(filter,
+                            selectGlobal(level, TranspositionFilter.firstSeen(filter, newModels)));
+                } catch (final CancellationException e) {
+                    return incumbent.orBestOf(frontier);
                 }
             }
-            // Select k models
-            models = m_selector.selectGlobal(newModels);
+        } finally {
+            if (m_listener != null) {
+                m_listener.runFinished(level, System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    private Iterable<T> selectGlobal(final int level, final Iterable<C> candidates) {
+        if (m_listener == null) {
+            return m_selector.selectGlobal(candidates);
         }
+        final MeasuredIterable<C> measured = new MeasuredIterable<>(candidates);
+        final long start = System.nanoTime();
+        final Iterable<T> models = m_selector.selectGlobal(measured);
+        ListenerSupport.selected(m_listener, level, measured, 0, System.nanoTime() - start, models);
+        return models;
     }
 }
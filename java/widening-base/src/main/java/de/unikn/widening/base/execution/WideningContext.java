@@ -0,0 +1,65 @@
+package de.unikn.widening.base.execution;
+
+/**
+ * Identifies the run a thread works on, so measurements can be attributed to it.
+ * The context is set for the calling thread, e.g. by the test framework, and calculators
+ * hand it to their workers, so reports to a {@link WideningListener} and JFR events of the workers
+ * are attributed to the run as well.
+ */
+public final class WideningContext {
+
+    /** The context of threads no context was set for. */
+    public static final WideningContext NONE = new WideningContext(null, -1);
+
+    private static final ThreadLocal<WideningContext> CURRENT = new ThreadLocal<>();
+
+    private final String m_subject;
+    private final long m_run;
+
+    /**
+     * Creates a new context.
+     * @param subject the id of the tested subject, may be null
+     * @param run the number of the run
+     */
+    public WideningContext(final String subject, final long run) {
+        m_subject = subject;
+        m_run = run;
+    }
+
+    /**
+     * @return the id of the tested subject, null if unknown
+     */
+    public String getSubject() {
+        return m_subject;
+    }
+
+    /**
+     * @return the number of the run, negative if unknown
+     */
+    public long getRun() {
+        return m_run;
+    }
+
+    /**
+     * @return the context of the current thread, {@link #NONE} if none was set
+     */
+    public static WideningContext current() {
+        final WideningContext context = CURRENT.get();
+        return context == null ? NONE : context;
+    }
+
+    /**
+     * Sets the context of the current thread.
+     * @param context the context, null to remove it
+     * @return the previous context of the thread
+     */
+    public static WideningContext set(final WideningContext context) {
+        final WideningContext previous = current();
+        if (context == null || context == NONE) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,61 @@
+package de.unikn.widening.base.execution;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Factory for executors that run one task per model or per problem without tuning pool sizes.
+ * On runtimes with virtual threads every task gets its own virtual thread. Virtual threads are carried
+ * by a scheduler with one thread per processor, so blocked tasks are cheap while the refinements never
+ * occupy more processors than there are. On older runtimes a work-stealing pool with one thread per
+ * processor is used instead.
+ */
+public final class WideningExecutors {
+
+    private static final Method VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+    private WideningExecutors() {
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads
+     */
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor starting a virtual thread per task, or a work-stealing pool with one thread
+     * per processor if the runtime has no virtual threads. The executor should be shut down after use.
+     * @return the executor
+     */
+    public static ExecutorService newTaskPerModelExecutor() {
+        if (VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (final ReflectiveOperationException e) {
+                // Fall through to the pool
+            }
+        }
+        return newCpuBoundedExecutor();
+    }
+
+    /**
+     * Creates a work-stealing pool with one thread per available processor.
+     * Unlike a pool of virtual threads, tasks blocking in this pool occupy one of its threads.
+     * @return the executor
+     */
+    public static ExecutorService newCpuBoundedExecutor() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (final NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
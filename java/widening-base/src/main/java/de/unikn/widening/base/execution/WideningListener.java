@@ -0,0 +1,48 @@
+package de.unikn.widening.base.execution;
+
+/**
+ * Receives measurements of the levels of widening runs.
+ * Calculators only measure if a listener is set. Parallel calculators call {@link #refined} from
+ * their worker threads, and listeners shared between runs are called concurrently, so
+ * implementations must be thread-safe.
+ *
+ * @param <S> the type of the model scores
+ */
+public interface WideningListener<S extends Comparable<S>> {
+
+    /**
+     * Called when a level starts.
+     * @param level the level, starting at zero
+     * @param frontierSize the number of models refined in the level
+     */
+    void levelStarted(int level, int frontierSize);
+
+    /**
+     * Called when a refinement and its local selection are done. Depending on the calculator
+     * this is a whole model or a range of its candidates.
+     * @param level the level
+     * @param candidates the number of candidates created by the refinement
+     * @param nanos the time spent creating the candidates and selecting from them. Candidates are usually
+     *          created lazily while the local selection iterates them, so both are measured together.
+     * @param waitNanos the time the refinement waited to be started, zero when run right away
+     */
+    void refined(int level, long candidates, long nanos, long waitNanos);
+
+    /**
+     * Called when the global selection of a level is done.
+     * @param level the level
+     * @param candidates the number of candidates kept by the local selections
+     * @param mergeNanos the time spent combining the local selections before the global selection
+     * @param selectNanos the time spent in the global selection
+     * @param models the number of selected models
+     * @param bestScore the best score of the selected models, null if none was selected
+     */
+    void selected(int level, long candidates, long mergeNanos, long selectNanos, int models, S bestScore);
+
+    /**
+     * Called when a run ends, also when it fails.
+     * @param levels the number of levels that were completed
+     * @param nanos the duration of the run
+     */
+    void runFinished(int levels, long nanos);
+}
@@ -0,0 +1,230 @@
+package de.unikn.widening.base.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link WideningListener} that aggregates the measurements of any number of runs in counters and histograms.
+ * Updates only add to striped counters, so a single instance can be shared by parallel runs.
+ *
+ * @param <S> the type of the model scores
+ */
+public class WideningMetrics<S extends Comparable<S>> implements WideningListener<S> {
+
+    private final LongAdder m_runs = new LongAdder();
+    private final LongAdder m_levels = new LongAdder();
+    private final LongAdder m_candidates = new LongAdder();
+    private final LongAdder m_kept = new LongAdder();
+
+    private final Histogram m_frontierSize = new Histogram();
+    private final Histogram m_refineNanos = new Histogram();
+    private final Histogram m_waitNanos = new Histogram();
+    private final Histogram m_mergeNanos = new Histogram();
+    private final Histogram m_selectGlobalNanos = new Histogram();
+    private final Histogram m_runNanos = new Histogram();
+
+    private final ConcurrentMap<Integer, S> m_bestScores = new ConcurrentHashMap<>();
+
+    @Override
+    public void levelStarted(final int level, final int frontierSize) {
+        m_levels.increment();
+        m_frontierSize.record(frontierSize);
+    }
+
+    @Override
+    public void refined(final int level, final long candidates, final long nanos, final long waitNanos) {
+        m_candidates.add(candidates);
+        m_refineNanos.record(nanos);
+        m_waitNanos.record(waitNanos);
+    }
+
+    @Override
+    public void selected(final int level, final long candidates, final long mergeNanos, final long selectNanos,
+            final int models, final S bestScore) {
+        m_kept.add(candidates);
+        m_mergeNanos.record(mergeNanos);
+        m_selectGlobalNanos.record(selectNanos);
+        if (bestScore != null) {
+            m_bestScores.merge(level, bestScore, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+        }
+    }
+
+    @Override
+    public void runFinished(final int levels, final long nanos) {
+        m_runs.increment();
+        m_runNanos.record(nanos);
+    }
+
+    /**
+     * @return the number of finished runs
+     */
+    public long getRuns() {
+        return m_runs.sum();
+    }
+
+    /**
+     * @return the number of started levels
+     */
+    public long getLevels() {
+        return m_levels.sum();
+    }
+
+    /**
+     * @return the number of candidates created by refinements
+     */
+    public long getCandidates() {
+        return m_candidates.sum();
+    }
+
+    /**
+     * @return the number of candidates kept by local selections
+     */
+    public long getKeptCandidates() {
+        return m_kept.sum();
+    }
+
+    /**
+     * @return the sizes of the frontiers of the levels
+     */
+    public Histogram getFrontierSizes() {
+        return m_frontierSize;
+    }
+
+    /**
+     * @return the times spent creating the candidates of a refinement and selecting from them locally
+     */
+    public Histogram getRefineNanos() {
+        return m_refineNanos;
+    }
+
+    /**
+     * @return the times refinements waited to be started
+     */
+    public Histogram getWaitNanos() {
+        return m_waitNanos;
+    }
+
+    /**
+     * @return the times spent combining the local selections of a level
+     */
+    public Histogram getMergeNanos() {
+        return m_mergeNanos;
+    }
+
+    /**
+     * @return the times spent in the global selection of a level
+     */
+    public Histogram getSelectGlobalNanos() {
+        return m_selectGlobalNanos;
+    }
+
+    /**
+     * @return the durations of the runs
+     */
+    public Histogram getRunNanos() {
+        return m_runNanos;
+    }
+
+    /**
+     * @return the best score selected at each level over all runs, null for levels without selected models
+     */
+    public List<S> getBestScores() {
+        int levels = 0;
+        for (final int level : m_bestScores.keySet()) {
+            levels = Math.max(levels, level + 1);
+        }
+        final List<S> scores = new ArrayList<>(levels);
+        for (int level = 0; level < levels; level++) {
+            scores.add(m_bestScores.get(level));
+        }
+        return scores;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("runs=%d levels=%d candidates=%d kept=%d%n"
+                + "refine+local:  %s%nwait:          %s%n"
+                + "merge:         %s%nselect global: %s%nrun:           %s",
+                getRuns(), getLevels(), getCandidates(), getKeptCandidates(),
+                m_refineNanos, m_waitNanos, m_mergeNanos, m_selectGlobalNanos, m_runNanos);
+    }
+
+    /**
+     * Histogram of non-negative values with one bucket per power of two.
+     */
+    public static final class Histogram {
+
+        private final AtomicLongArray m_buckets = new AtomicLongArray(Long.SIZE);
+        private final LongAdder m_count = new LongAdder();
+        private final LongAdder m_sum = new LongAdder();
+        private final LongAccumulator m_max = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+        }
+
+        void record(final long value) {
+            final long v = Math.max(0, value);
+            // Bucket i holds values below 2^i
+            m_buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(v));
+            m_count.increment();
+            m_sum.add(v);
+            m_max.accumulate(v);
+        }
+
+        /**
+         * @return the number of recorded values
+         */
+        public long getCount() {
+            return m_count.sum();
+        }
+
+        /**
+         * @return the sum of the recorded values
+         */
+        public long getSum() {
+            return m_sum.sum();
+        }
+
+        /**
+         * @return the largest recorded value
+         */
+        public long getMax() {
+            return m_max.get();
+        }
+
+        /**
+         * @return the mean of the recorded values, zero if there are none
+         */
+        public double getMean() {
+            final long count = getCount();
+            return count == 0 ? 0 : (double) getSum() / count;
+        }
+
+        /**
+         * @param p the percentile, between 0 and 1
+         * @return an upper bound of the percentile, exact up to a factor of two
+         */
+        public long getPercentile(final double p) {
+            final long rank = (long) Math.ceil(p * getCount());
+            long seen = 0;
+            for (int i = 0; i < Long.SIZE; i++) {
+                seen += m_buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(i == 0 ? 0 : (1L << i) - 1, getMax());
+                }
+            }
+            return getMax();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d sum=%d mean=%.1f p50<=%d p99<=%d max=%d",
+                    getCount(), getSum(), getMean(), getPercentile(0.5), getPercentile(0.99), getMax());
+        }
+    }
+}
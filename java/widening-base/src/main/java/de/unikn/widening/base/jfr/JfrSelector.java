@@ -0,0 +1,82 @@
+package de.unikn.widening.base.jfr;
+
+import java.util.Collection;
+
+import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.collections.MeasuredIterable;
+import de.unikn.widening.base.execution.WideningContext;
+
+/**
+ * Selector that emits a JDK Flight Recorder event for every local and global selection of the selector it wraps.
+ * The wrapped selector is only used through {@link WideningSelector}, so calculators do not merge the states
+ * of wrapped {@link de.unikn.widening.base.MergeableSelector}s.
+ */
+public class JfrSelector<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>>
+    implements WideningSelector<S,T,C> {
+
+    private final WideningSelector<S,T,C> m_selector;
+    private final String m_name;
+
+    /**
+     * Creates a new <code>JfrSelector</code>.
+     * @param selector the selector to record
+     */
+    public JfrSelector(final WideningSelector<S,T,C> selector) {
+        m_selector = selector;
+        m_name = selector.getClass().getSimpleName();
+    }
+
+    @Override
+    public Iterable<C> selectLocal(final Iterable<C> models) {
+        final SelectEvent event = new SelectEvent();
+        if (!event.isEnabled()) {
+            return m_selector.selectLocal(models);
+        }
+        event.begin();
+        final MeasuredIterable<C> measured = new MeasuredIterable<>(models);
+        final Iterable<C> selected = m_selector.selectLocal(measured);
+        commit(event, false, measured.getCount(), selected);
+        return selected;
+    }
+
+    @Override
+    public Iterable<T> selectGlobal(final Iterable<C> models) {
+        final SelectEvent event = new SelectEvent();
+        if (!event.isEnabled()) {
+            return m_selector.selectGlobal(models);
+        }
+        event.begin();
+        final MeasuredIterable<C> measured = new MeasuredIterable<>(models);
+        final Iterable<T> selected = m_selector.selectGlobal(measured);
+        commit(event, true, measured.getCount(), selected);
+        return selected;
+    }
+
+    private void commit(final SelectEvent event, final boolean global, final long candidates,
+            final Iterable<?> selected) {
+        event.end();
+        if (event.shouldCommit()) {
+            final WideningContext context = WideningContext.current();
+            event.subject = context.getSubject();
+            event.run = context.getRun();
+            event.selector = m_name;
+            event.global = global;
+            event.candidates = candidates;
+            event.selected = count(selected);
+            event.commit();
+        }
+    }
+
+    private static long count(final Iterable<?> selected) {
+        if (selected instanceof Collection) {
+            return ((Collection<?>) selected).size();
+        }
+        long count = 0;
+        for (final Object o : selected) {
+            count++;
+        }
+        return count;
+    }
+}
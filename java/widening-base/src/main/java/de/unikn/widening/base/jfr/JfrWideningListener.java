@@ -0,0 +1,79 @@
+package de.unikn.widening.base.jfr;
+
+import de.unikn.widening.base.execution.WideningContext;
+import de.unikn.widening.base.execution.WideningListener;
+
+/**
+ * {@link WideningListener} that emits JDK Flight Recorder events for runs, levels and refinements.
+ * Events carry the subject and run of the {@link WideningContext} of the reporting thread.
+ * Events that are not enabled in the recording cost little more than a check.
+ *
+ * @param <S> the type of the model scores
+ */
+public class JfrWideningListener<S extends Comparable<S>> implements WideningListener<S> {
+
+    // Levels start and end in the thread running the widening
+    private final ThreadLocal<LevelEvent> m_level = new ThreadLocal<>();
+
+    @Override
+    public void levelStarted(final int level, final int frontierSize) {
+        final LevelEvent event = new LevelEvent();
+        if (event.isEnabled()) {
+            event.level = level;
+            event.frontierSize = frontierSize;
+            event.begin();
+            m_level.set(event);
+        }
+    }
+
+    @Override
+    public void refined(final int level, final long candidates, final long nanos, final long waitNanos) {
+        final RefineEvent event = new RefineEvent();
+        if (event.shouldCommit()) {
+            final WideningContext context = WideningContext.current();
+            event.subject = context.getSubject();
+            event.run = context.getRun();
+            event.level = level;
+            event.candidates = candidates;
+            event.refineTime = nanos;
+            event.waitTime = waitNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void selected(final int level, final long candidates, final long mergeNanos, final long selectNanos,
+            final int models, final S bestScore) {
+        final LevelEvent event = m_level.get();
+        m_level.remove();
+        if (event == null || event.level != level) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            final WideningContext context = WideningContext.current();
+            event.subject = context.getSubject();
+            event.run = context.getRun();
+            event.candidates = candidates;
+            event.models = models;
+            event.bestScore = bestScore == null ? null : bestScore.toString();
+            event.mergeTime = mergeNanos;
+            event.selectTime = selectNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void runFinished(final int levels, final long nanos) {
+        m_level.remove();
+        final RunEvent event = new RunEvent();
+        if (event.shouldCommit()) {
+            final WideningContext context = WideningContext.current();
+            event.subject = context.getSubject();
+            event.run = context.getRun();
+            event.levels = levels;
+            event.runTime = nanos;
+            event.commit();
+        }
+    }
+}
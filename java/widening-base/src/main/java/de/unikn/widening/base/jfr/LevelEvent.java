@@ -0,0 +1,45 @@
+package de.unikn.widening.base.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Emitted for every level of a widening run, spanning from its start to the end of its global selection.
+ */
+@Name("de.unikn.widening.Level")
+@Label("Widening Level")
+@Category("Widening")
+class LevelEvent extends Event {
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Run")
+    long run;
+
+    @Label("Level")
+    int level;
+
+    @Label("Frontier Size")
+    int frontierSize;
+
+    @Label("Candidates")
+    long candidates;
+
+    @Label("Selected Models")
+    int models;
+
+    @Label("Best Score")
+    String bestScore;
+
+    @Label("Merge Time")
+    @Timespan
+    long mergeTime;
+
+    @Label("Global Selection Time")
+    @Timespan
+    long selectTime;
+}
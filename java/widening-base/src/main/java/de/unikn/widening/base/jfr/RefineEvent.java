@@ -0,0 +1,36 @@
+package de.unikn.widening.base.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Emitted for every refinement and its local selection.
+ */
+@Name("de.unikn.widening.Refine")
+@Label("Widening Refinement")
+@Category("Widening")
+class RefineEvent extends Event {
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Run")
+    long run;
+
+    @Label("Level")
+    int level;
+
+    @Label("Candidates")
+    long candidates;
+
+    @Label("Refinement and Local Selection Time")
+    @Timespan
+    long refineTime;
+
+    @Label("Wait Time")
+    @Timespan
+    long waitTime;
+}
@@ -0,0 +1,29 @@
+package de.unikn.widening.base.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Emitted when a widening run ends.
+ */
+@Name("de.unikn.widening.Run")
+@Label("Widening Run")
+@Category("Widening")
+class RunEvent extends Event {
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Run")
+    long run;
+
+    @Label("Levels")
+    int levels;
+
+    @Label("Run Time")
+    @Timespan
+    long runTime;
+}
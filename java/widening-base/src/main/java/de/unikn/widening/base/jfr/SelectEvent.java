@@ -0,0 +1,33 @@
+package de.unikn.widening.base.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Emitted for every call of a selector wrapped in a {@link JfrSelector}.
+ */
+@Name("de.unikn.widening.Select")
+@Label("Widening Selection")
+@Category("Widening")
+class SelectEvent extends Event {
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Run")
+    long run;
+
+    @Label("Selector")
+    String selector;
+
+    @Label("Global")
+    boolean global;
+
+    @Label("Candidates")
+    long candidates;
+
+    @Label("Selected")
+    long selected;
+}
@@ -0,0 +1,45 @@
+package de.unikn.widening.test.framework;
+
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.WideningRefiner;
+import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.execution.ForkJoinWideningCalculator;
+
+/**
+ * {@link TestSubject} that tests a {@link WideningSelector} using a {@link ForkJoinWideningCalculator}.
+ */
+public class ForkJoinSelectorTestSubject<S extends Comparable<S>, T extends WideningModel<S>, C extends Candidate<S, T>> extends TestSubject<T> {
+
+    private WideningSelector<S,T,C> m_selector;
+    private WideningRefiner<S,T,C> m_refiner;
+    private ForkJoinPool m_pool;
+
+    /**
+     * Constructor for a <code>ForkJoinSelectorTestSubject</code>.
+     * @param id the subject's id
+     * @param selector the selector to test
+     * @param refiner the refiner to create candidates with
+     * @param pool the pool to run the refinements in
+     */
+    public ForkJoinSelectorTestSubject(final String id,
+            final WideningSelector<S,T,C> selector,
+            final WideningRefiner<S,T,C> refiner,
+            final ForkJoinPool pool) {
+        super(id);
+        m_selector = selector;
+        m_refiner = refiner;
+        m_pool = pool;
+    }
+
+    @Override
+    public T optimize(final T start) {
+        final ForkJoinWideningCalculator<S,T,C> calc
+            = new ForkJoinWideningCalculator<>(m_refiner, m_selector, m_pool);
+        final Optional<T> resultModel = calc.run(start);
+        return resultModel.orElse(null);
+    }
+}
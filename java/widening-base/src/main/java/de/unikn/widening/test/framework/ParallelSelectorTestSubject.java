@@ -38,7 +38,7 @@ public class ParallelSelectorTestSubject<S extends Comparable<S>, T extends Wide
     @Override
     public T optimize(final T start) {
         final ParallelWideningCalculator<S,T,C> calc
-            = new ParallelWideningCalculator<>(m_refiner::refine, m_selector, m_exec);
+            = new ParallelWideningCalculator<>(m_refiner, m_selector, m_exec);
 
         try {
             final Optional<T> resultModel = calc.run(start);
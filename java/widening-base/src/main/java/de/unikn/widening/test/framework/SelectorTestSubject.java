@@ -31,7 +31,7 @@ public class SelectorTestSubject<S extends Comparable<S>, T extends WideningMode
 
     @Override
     public T optimize(final T start) {
-        final WideningCalculator<S,T,C> calc = new WideningCalculator<S,T,C>(m_refiner::refine, m_selector);
+        final WideningCalculator<S,T,C> calc = new WideningCalculator<S,T,C>(m_refiner, m_selector);
         final Optional<T> resultModel = calc.run(start);
         return resultModel.orElse(null);
     }
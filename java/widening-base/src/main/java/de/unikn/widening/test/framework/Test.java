@@ -6,10 +6,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.execution.WideningContext;
+import de.unikn.widening.base.execution.WideningExecutors;
 import de.unikn.widening.test.framework.TestResult.TestResultBuilder;
 
 /**
@@ -30,6 +35,8 @@ public final class Test<S extends Comparable<S>, T extends WideningModel<S>> {
 
     private List<TestResultListener<S,T>> m_resultListeners;
 
+    private final AtomicLong m_nextRun = new AtomicLong();
+
     // Test should be built using the builder
     private Test(final Supplier<T> modelSupplier, final int numExecs,
                 final List<TestSubject<T>> subjects, final Runnable after) {
@@ -86,30 +93,48 @@ public final class Test<S extends Comparable<S>, T extends WideningModel<S>> {
 
     /**
      * Runs the test in parallel, utilizing all available processors.
-     * Blocks until all workers are done.
+     * Every execution runs as its own task, in a virtual thread if the runtime supports them.
+     * Blocks until all executions are done.
      * @throws InterruptedException when the parallel execution gets interrupted.
      */
     public void runParallel() throws InterruptedException {
-        final int cores = Runtime.getRuntime().availableProcessors();
-        final int chunkSize = (int) Math.ceil((double) m_numExecs / cores);
-
-        final Semaphore sem = new Semaphore(-cores + 1);
-        for (int i = 0; i < cores; i++) {
-            final int start = i * chunkSize;
-            final int end = Math.min(m_numExecs, (i + 1) * chunkSize);
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    for (int i = start; i < end; i++) {
-                        final TestResult<S,T> result = runOnce(m_modelSupplier.get());
-                        resultAvailable(result);
-                    }
-                    sem.release();
-                }
-            }).start();
-        }
-        // Blocks until all worker threads have released their permit
-        sem.acquire();
+        final ExecutorService exec = WideningExecutors.newTaskPerModelExecutor();
+        try {
+            runParallel(exec);
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the test in parallel, submitting every execution as a task to the given executor.
+     * Blocks until all executions are done.
+     * @param exec the executor to run the executions in
+     * @throws InterruptedException when the parallel execution gets interrupted.
+     */
+    public void runParallel(final ExecutorService exec) throws InterruptedException {
+        final List<Future<?>> executions = new ArrayList<>(m_numExecs);
+        try {
+            for (int i = 0; i < m_numExecs; i++) {
+                executions.add(exec.submit(() -> resultAvailable(runOnce(m_modelSupplier.get()))));
+            }
+            for (final Future<?> execution : executions) {
+                execution.get();
+            }
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            // Do not leave executions running when one of them failed
+            for (final Future<?> execution : executions) {
+                execution.cancel(true);
+            }
+        }
         if (m_after != null) {
             m_after.run();
         }
@@ -146,7 +171,8 @@ public final class Test<S extends Comparable<S>, T extends WideningModel<S>> {
         m_resultListeners.remove(l);
     }
 
-    private void resultAvailable(final TestResult<S,T> res) {
+    // Executions running in parallel report one at a time
+    private synchronized void resultAvailable(final TestResult<S,T> res) {
         for (TestResultListener<S,T> l : m_resultListeners) {
             l.resultAvailable(res);
         }
@@ -160,13 +186,20 @@ public final class Test<S extends Comparable<S>, T extends WideningModel<S>> {
 
     private TestResult<S,T> runOnce(final T model) {
         final TestResultBuilder<S,T> builder = TestResult.builder();
+        final long run = m_nextRun.getAndIncrement();
 
         for (TestSubject<T> s : m_subjects) {
-            final long start = System.currentTimeMillis();
-            final T res = s.optimize(model);
-            final long time = System.currentTimeMillis() - start;
-
-            builder.result(s.getId(), res).time(s.getId(), time);
+            // Lets measurements of the optimization be attributed to the subject and run
+            final WideningContext previous = WideningContext.set(new WideningContext(s.getId(), run));
+            try {
+                final long start = System.currentTimeMillis();
+                final T res = s.optimize(model);
+                final long time = System.currentTimeMillis() - start;
+
+                builder.result(s.getId(), res).time(s.getId(), time);
+            } finally {
+                WideningContext.set(previous);
+            }
         }
         return builder.build();
     }
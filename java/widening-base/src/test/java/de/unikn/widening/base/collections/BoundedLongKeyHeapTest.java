@@ -0,0 +1,73 @@
+package de.unikn.widening.base.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BoundedLongKeyHeapTest {
+
+    @Test
+    public void keepsTheSmallestKeys() {
+        final Random rng = new Random(0);
+        for (final int capacity : new int[] {1, 2, 7, 32}) {
+            final BoundedLongKeyHeap<Long> heap = new BoundedLongKeyHeap<>(capacity);
+            final List<Long> all = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                // Few distinct keys, so equal keys compete for the last places
+                final long key = rng.nextInt(200) - 100;
+                all.add(key);
+                if (!heap.isFull() || key < heap.peekKey()) {
+                    heap.add(key, key);
+                }
+                assertHeapOrdered(heap);
+            }
+            Collections.sort(all);
+            assertEquals(all.subList(0, capacity), heap.toSortedList());
+            assertEquals(all.get(capacity - 1).longValue(), heap.peekKey());
+        }
+    }
+
+    @Test
+    public void replacesTheLargestKeyWhenFull() {
+        final BoundedLongKeyHeap<String> heap = new BoundedLongKeyHeap<>(3);
+        heap.add(5, "five");
+        heap.add(1, "one");
+        assertFalse(heap.isFull());
+        heap.add(3, "three");
+        assertTrue(heap.isFull());
+        assertEquals(5, heap.peekKey());
+        heap.add(2, "two");
+        assertEquals(3, heap.size());
+        assertEquals(3, heap.peekKey());
+        assertEquals(Arrays.asList("one", "two", "three"), heap.toSortedList());
+        heap.clear();
+        assertEquals(0, heap.size());
+        assertTrue(heap.toSortedList().isEmpty());
+    }
+
+    @Test
+    public void ignoresElementsWithoutCapacity() {
+        final BoundedLongKeyHeap<String> heap = new BoundedLongKeyHeap<>(0);
+        assertTrue(heap.isFull());
+        heap.add(1, "one");
+        assertEquals(0, heap.size());
+    }
+
+    private static void assertHeapOrdered(final BoundedLongKeyHeap<Long> heap) {
+        for (int i = 0; i < heap.size(); i++) {
+            // Every element is stored with its key
+            assertEquals(heap.keyAt(i), heap.elementAt(i).longValue());
+            if (i > 0) {
+                assertTrue(heap.keyAt((i - 1) / 2) >= heap.keyAt(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package de.unikn.widening.base.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompressedIntBitmapTest {
+
+    private static final int CHUNK = 1 << 16;
+
+    @Test
+    public void matchesBitSet() {
+        final Random rng = new Random(0);
+        final BitSet bits = new BitSet();
+        // A sparse chunk, a full chunk and an empty chunk between chunks holding values
+        for (int i = 0; i < 100; i++) {
+            bits.set(rng.nextInt(CHUNK));
+        }
+        bits.set(CHUNK, 2 * CHUNK);
+        for (int i = 0; i < 5000; i++) {
+            bits.set(3 * CHUNK + rng.nextInt(CHUNK));
+        }
+        assertMatches(bits, CompressedIntBitmap.of(bits));
+    }
+
+    @Test
+    public void promotesChunksWhileAdding() {
+        final Random rng = new Random(0);
+        final BitSet bits = new BitSet();
+        final CompressedIntBitmap empty = CompressedIntBitmap.of(bits);
+        IntBitmap bitmap = empty;
+        // Past the size where an array chunk becomes a bit vector chunk
+        while (bits.cardinality() < 6000) {
+            final int value = CHUNK + rng.nextInt(CHUNK);
+            final IntBitmap before = bitmap;
+            bitmap = bitmap.with(value);
+            if (bits.get(value)) {
+                assertSame(before, bitmap);
+            }
+            bits.set(value);
+        }
+        assertMatches(bits, bitmap);
+        assertEquals(CompressedIntBitmap.of(bits), bitmap);
+        assertEquals(0, empty.cardinality());
+    }
+
+    @Test
+    public void sharesUnchangedChunks() {
+        final BitSet bits = new BitSet();
+        bits.set(5);
+        bits.set(2 * CHUNK + 7);
+        final IntBitmap bitmap = CompressedIntBitmap.of(bits);
+        final IntBitmap added = bitmap.with(CHUNK + 1).with(2 * CHUNK + 8);
+        // The original bitmap is not changed
+        assertMatches(bits, bitmap);
+        assertFalse(bitmap.contains(CHUNK + 1));
+        bits.set(CHUNK + 1);
+        bits.set(2 * CHUNK + 8);
+        assertMatches(bits, added);
+    }
+
+    private static void assertMatches(final BitSet expected, final IntBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected, actual.toBitSet());
+        final int end = expected.length() + CHUNK;
+        for (int v = 0; v < end; v += 1 + v % 97) {
+            assertEquals(expected.get(v), actual.contains(v));
+            assertEquals(expected.nextSetBit(v), actual.nextSetBit(v));
+            assertEquals(expected.nextClearBit(v), actual.nextClearBit(v));
+        }
+        final BitSet mask = new BitSet();
+        for (int v = 0; v < end; v += 3) {
+            mask.set(v);
+        }
+        final BitSet rest = (BitSet) expected.clone();
+        rest.andNot(mask);
+        assertEquals(rest.cardinality(), actual.andNotCardinality(mask.toLongArray()));
+        assertTrue(actual.nextSetBit(end) < 0);
+    }
+}
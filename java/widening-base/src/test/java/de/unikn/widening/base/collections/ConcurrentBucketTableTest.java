@@ -0,0 +1,104 @@
+package de.unikn.widening.base.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ConcurrentBucketTableTest {
+
+    private static final int BUCKETS = 16;
+    private static final int THREADS = 8;
+
+    @Test
+    public void keepsLowestKeyPerBucket() {
+        final ConcurrentBucketTable<Integer> table = new ConcurrentBucketTable<>(2);
+        assertNull(table.get(0));
+        assertTrue(table.key(0) > ConcurrentBucketTable.MAX_KEY);
+        assertTrue(table.offer(0, 5, 1));
+        assertFalse(table.offer(0, 7, 2));
+        assertFalse(table.offer(0, 5, 3));
+        assertTrue(table.offer(0, 4, 4));
+        assertEquals(Integer.valueOf(4), table.get(0));
+        assertEquals(4, table.key(0));
+        assertNull(table.get(1));
+        assertEquals(Collections.singletonList(4), table.elements());
+    }
+
+    @Test
+    public void breaksKeyTiesByComparator() {
+        final ConcurrentBucketTable<Integer> table = new ConcurrentBucketTable<>(1);
+        final Comparator<Integer> ties = Comparator.naturalOrder();
+        assertTrue(table.offer(0, 3, 10, ties));
+        assertFalse(table.offer(0, 3, 12, ties));
+        assertTrue(table.offer(0, 3, 8, ties));
+        assertFalse(table.offer(0, 3, 8, ties));
+        assertEquals(Integer.valueOf(8), table.get(0));
+    }
+
+    @Test
+    public void concurrentOffersKeepTheSequentialMinimum() throws Exception {
+        final Random rng = new Random(0);
+        final List<int[]> offers = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Few distinct keys, so many offers tie and only the comparator decides
+            offers.add(new int[] {rng.nextInt(BUCKETS), rng.nextInt(20), i});
+        }
+        final Comparator<Integer> ties = Comparator.naturalOrder();
+
+        final long[] expectedKeys = new long[BUCKETS];
+        final int[] expected = new int[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) {
+            expectedKeys[b] = Long.MAX_VALUE;
+        }
+        for (final int[] o : offers) {
+            if (o[1] < expectedKeys[o[0]] || o[1] == expectedKeys[o[0]] && o[2] < expected[o[0]]) {
+                expectedKeys[o[0]] = o[1];
+                expected[o[0]] = o[2];
+            }
+        }
+
+        final ExecutorService exec = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < 5; round++) {
+                Collections.shuffle(offers, rng);
+                final ConcurrentBucketTable<Integer> table = new ConcurrentBucketTable<>(BUCKETS);
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    final int from = offers.size() * t / THREADS;
+                    final int to = offers.size() * (t + 1) / THREADS;
+                    tasks.add(exec.submit(() -> {
+                        start.await();
+                        for (final int[] o : offers.subList(from, to)) {
+                            table.offer(o[0], o[1], o[2], ties);
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (final Future<?> task : tasks) {
+                    task.get();
+                }
+                for (int b = 0; b < BUCKETS; b++) {
+                    assertEquals(expectedKeys[b], table.key(b));
+                    assertEquals(Integer.valueOf(expected[b]), table.get(b));
+                }
+            }
+        } finally {
+            exec.shutdown();
+        }
+    }
+}
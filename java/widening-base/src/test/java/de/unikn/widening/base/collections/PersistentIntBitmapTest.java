@@ -0,0 +1,81 @@
+package de.unikn.widening.base.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentIntBitmapTest {
+
+    @Test
+    public void matchesBitSet() {
+        final Random rng = new Random(0);
+        final BitSet bits = new BitSet();
+        // Sparse values over several levels of the trie and a run of full chunks
+        for (int i = 0; i < 2000; i++) {
+            bits.set(rng.nextInt(1 << 22));
+        }
+        bits.set(10000, 12000);
+        assertMatches(bits, PersistentIntBitmap.of(bits));
+    }
+
+    @Test
+    public void copiesOnlyThePathOfAddedValues() {
+        final Random rng = new Random(0);
+        final List<BitSet> expected = new ArrayList<>();
+        final List<IntBitmap> bitmaps = new ArrayList<>();
+        expected.add(new BitSet());
+        bitmaps.add(PersistentIntBitmap.of(new BitSet()));
+        // Every version extends a random earlier one, which must not see the value
+        for (int i = 0; i < 500; i++) {
+            final int parent = rng.nextInt(bitmaps.size());
+            final int value = rng.nextInt(i < 250 ? 1 << 12 : 1 << 20);
+            final BitSet bits = (BitSet) expected.get(parent).clone();
+            bits.set(value);
+            expected.add(bits);
+            bitmaps.add(bitmaps.get(parent).with(value));
+        }
+        for (int i = 0; i < bitmaps.size(); i++) {
+            assertMatches(expected.get(i), bitmaps.get(i));
+            assertEquals(PersistentIntBitmap.of(expected.get(i)), bitmaps.get(i));
+        }
+    }
+
+    @Test
+    public void growsTheTrieForLargeValues() {
+        final BitSet bits = new BitSet();
+        bits.set(3);
+        final IntBitmap small = PersistentIntBitmap.of(bits);
+        final IntBitmap large = small.with(1 << 28);
+        assertMatches(bits, small);
+        assertSame(large, large.with(3));
+        bits.set(1 << 28);
+        assertMatches(bits, large);
+        assertEquals(PersistentIntBitmap.of(bits), large);
+    }
+
+    private static void assertMatches(final BitSet expected, final IntBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected, actual.toBitSet());
+        for (int v = expected.nextSetBit(0); v >= 0; v = expected.nextSetBit(v + 1)) {
+            assertTrue(actual.contains(v));
+            assertEquals(expected.nextClearBit(v), actual.nextClearBit(v));
+            // Skips the gap after the previous value
+            assertEquals(v, actual.nextSetBit(expected.previousSetBit(v - 1) + 1));
+        }
+        final BitSet mask = new BitSet();
+        for (int v = 0; v < expected.length(); v += 3) {
+            mask.set(v);
+        }
+        final BitSet rest = (BitSet) expected.clone();
+        rest.andNot(mask);
+        assertEquals(rest.cardinality(), actual.andNotCardinality(mask.toLongArray()));
+        assertEquals(-1, actual.nextSetBit(expected.length()));
+    }
+}
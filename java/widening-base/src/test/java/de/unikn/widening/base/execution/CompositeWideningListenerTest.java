@@ -0,0 +1,90 @@
+package de.unikn.widening.base.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class CompositeWideningListenerTest {
+
+    @Test
+    public void forkJoinReportsToAllListeners() {
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            final ForkJoinWideningCalculator<Integer, StepModel, StepModel> calc =
+                    new ForkJoinWideningCalculator<>(StepModel.refiner(3), StepModel.selector(4), pool);
+            final Counts first = new Counts();
+            final Counts second = new Counts();
+            calc.setListener(CompositeWideningListener.of(first, second));
+            assertTrue(calc.run(new StepModel(5, 0)).get().isDone());
+            first.assertLevels(5);
+            second.assertLevels(5);
+            assertEquals(first.m_candidates.get(), second.m_candidates.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shardedReportsToAllListeners() throws Exception {
+        final ExecutorService exec = Executors.newFixedThreadPool(2);
+        try {
+            final ShardedWideningCalculator<Integer, StepModel, StepModel> calc = new ShardedWideningCalculator<>(
+                    StepModel.refiner(3), StepModel.selector(4), m -> (int) m.getId(), exec, 2);
+            final Counts first = new Counts();
+            final Counts second = new Counts();
+            calc.setListener(CompositeWideningListener.of(first, second));
+            assertTrue(calc.run(new StepModel(5, 0)).get().isDone());
+            first.assertLevels(5);
+            second.assertLevels(5);
+            assertEquals(first.m_candidates.get(), second.m_candidates.get());
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    private static final class Counts implements WideningListener<Integer> {
+
+        private final AtomicInteger m_started = new AtomicInteger();
+        private final AtomicLong m_candidates = new AtomicLong();
+        private final AtomicInteger m_selected = new AtomicInteger();
+        private final AtomicInteger m_finished = new AtomicInteger();
+        private volatile int m_levels = -1;
+
+        @Override
+        public void levelStarted(final int level, final int frontierSize) {
+            m_started.incrementAndGet();
+        }
+
+        @Override
+        public void refined(final int level, final long candidates, final long nanos, final long waitNanos) {
+            m_candidates.addAndGet(candidates);
+        }
+
+        @Override
+        public void selected(final int level, final long candidates, final long mergeNanos, final long selectNanos,
+                final int models, final Integer bestScore) {
+            m_selected.incrementAndGet();
+        }
+
+        @Override
+        public void runFinished(final int levels, final long nanos) {
+            m_finished.incrementAndGet();
+            m_levels = levels;
+        }
+
+        void assertLevels(final int levels) {
+            assertEquals(levels, m_started.get());
+            assertEquals(levels, m_selected.get());
+            assertEquals(1, m_finished.get());
+            assertEquals(levels, m_levels);
+            assertTrue(m_candidates.get() >= 3 * levels);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package de.unikn.widening.base.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ShardedWideningCalculatorTest {
+
+    @Test
+    public void workersFollowThePool() throws Exception {
+        final ExecutorService exec = Executors.newFixedThreadPool(2);
+        try {
+            final ShardedWideningCalculator<Integer, StepModel, StepModel> calc = new ShardedWideningCalculator<>(
+                    StepModel.refiner(3), StepModel.selector(4), m -> (int) m.getId(), exec);
+            final StepModel result = calc.run(new StepModel(5, 0)).get();
+            assertTrue(result.isDone());
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMoreWorkersThanThreads() {
+        final ExecutorService exec = Executors.newFixedThreadPool(2);
+        try {
+            new ShardedWideningCalculator<>(StepModel.refiner(3), StepModel.selector(4), m -> (int) m.getId(), exec, 4);
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void starvedWorkersFail() throws Exception {
+        // Hides the pool size from the calculator
+        final ExecutorService exec = Executors.unconfigurableExecutorService(Executors.newFixedThreadPool(2));
+        try {
+            final ShardedWideningCalculator<Integer, StepModel, StepModel> calc = new ShardedWideningCalculator<>(
+                    StepModel.refiner(3), StepModel.selector(4), m -> (int) m.getId(), exec, 4);
+            calc.setBarrierTimeout(200, TimeUnit.MILLISECONDS);
+            calc.run(new StepModel(5, 0));
+            fail("The workers waited for each other");
+        } catch (final ExecutionException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+}
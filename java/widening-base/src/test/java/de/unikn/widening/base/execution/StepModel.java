@@ -0,0 +1,74 @@
+package de.unikn.widening.base.execution;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.DefaultSelector;
+import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.WideningRefiner;
+
+/**
+ * A model that is done after a number of steps. Each refinement takes one step and creates a fixed number of
+ * children, distinguished by their ids. The score is the number of steps left.
+ */
+final class StepModel implements WideningModel<Integer>, Candidate<Integer, StepModel> {
+
+    private final int m_stepsLeft;
+    private final long m_id;
+
+    StepModel(final int stepsLeft, final long id) {
+        m_stepsLeft = stepsLeft;
+        m_id = id;
+    }
+
+    long getId() {
+        return m_id;
+    }
+
+    @Override
+    public Integer getScore() {
+        return m_stepsLeft;
+    }
+
+    @Override
+    public boolean isDone() {
+        return m_stepsLeft == 0;
+    }
+
+    @Override
+    public StepModel create() {
+        return this;
+    }
+
+    /**
+     * @param width the number of children of a model
+     * @return a refiner creating the children of models
+     */
+    static WideningRefiner<Integer, StepModel, StepModel> refiner(final int width) {
+        return m -> {
+            final List<StepModel> children = new ArrayList<>(width);
+            for (int i = 0; i < width; i++) {
+                children.add(new StepModel(m.m_stepsLeft - 1, m.m_id * width + i));
+            }
+            return children;
+        };
+    }
+
+    /**
+     * @param k the number of models to keep
+     * @return a selector keeping the k models with the lowest ids
+     */
+    static DefaultSelector<Integer, StepModel, StepModel> selector(final int k) {
+        return new DefaultSelector<Integer, StepModel, StepModel>() {
+            @Override
+            public Iterable<StepModel> select(final Iterable<StepModel> models) {
+                return StreamSupport.stream(models.spliterator(), false)
+                        .sorted(Comparator.comparingLong(StepModel::getId)).limit(k).collect(Collectors.toList());
+            }
+        };
+    }
+}
@@ -0,0 +1,65 @@
+package de.unikn.widening.base.execution;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import org.junit.Test;
+
+public class TranspositionFilterTest {
+
+    // Candidates and models are state hashes themselves
+    private static final ToLongFunction<Long> HASH = Long::longValue;
+
+    @Test
+    public void dropsRepeatedStatesWithinALevel() {
+        final TranspositionFilter<Long, Long> filter =
+                TranspositionFilter.create(() -> new ExactTranspositionTable(64), HASH, HASH);
+        final Iterable<Long> level = TranspositionFilter.firstSeen(filter, Arrays.asList(3L, 0L, 3L, 5L, 0L, 3L));
+        assertEquals(Arrays.asList(3L, 0L, 5L), list(level));
+        // Iterating again gives the same candidates
+        assertEquals(Arrays.asList(3L, 0L, 5L), list(level));
+    }
+
+    @Test
+    public void onlySelectedStatesAreRemembered() {
+        final TranspositionFilter<Long, Long> filter =
+                TranspositionFilter.create(() -> new ExactTranspositionTable(64), HASH, HASH);
+        final List<Long> candidates = Arrays.asList(1L, 2L, 3L);
+        assertEquals(candidates, list(TranspositionFilter.firstSeen(filter, candidates)));
+        TranspositionFilter.selected(filter, Arrays.asList(2L));
+        // The candidates that lost the selection are no transpositions
+        assertEquals(Arrays.asList(1L, 3L, 4L),
+                list(TranspositionFilter.firstSeen(filter, Arrays.asList(1L, 2L, 3L, 4L))));
+        assertEquals(Arrays.asList(1L, 3L), list(TranspositionFilter.unseen(filter, candidates)));
+    }
+
+    @Test
+    public void levelSetGrows() {
+        final TranspositionFilter<Long, Long> filter =
+                TranspositionFilter.create(() -> new ExactTranspositionTable(64), HASH, HASH);
+        final List<Long> candidates = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            candidates.add(i * 0x10000L);
+            candidates.add(i * 0x10000L);
+        }
+        assertEquals(1000, list(TranspositionFilter.firstSeen(filter, candidates)).size());
+    }
+
+    @Test
+    public void noTablesKeepAllCandidates() {
+        final TranspositionFilter<Long, Long> filter = TranspositionFilter.create(null, HASH, HASH);
+        final List<Long> candidates = Arrays.asList(1L, 1L);
+        assertEquals(candidates, list(TranspositionFilter.firstSeen(filter, candidates)));
+        assertEquals(candidates, list(TranspositionFilter.selected(filter, candidates)));
+    }
+
+    private static List<Long> list(final Iterable<Long> candidates) {
+        final List<Long> out = new ArrayList<>();
+        candidates.forEach(out::add);
+        return out;
+    }
+}
@@ -0,0 +1,108 @@
+package de.unikn.widening.base.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.unikn.widening.base.WideningRefiner;
+
+public class WideningBudgetTest {
+
+    private final ExecutorService m_exec = Executors.newFixedThreadPool(2);
+    private final ForkJoinPool m_pool = new ForkJoinPool(2);
+
+    @After
+    public void shutdown() {
+        m_exec.shutdownNow();
+        m_pool.shutdownNow();
+    }
+
+    @Test
+    public void levelLimitReturnsTheBestModelOfTheLastLevel() throws Exception {
+        final WideningBudget budget = WideningBudget.builder().maxLevels(3).build();
+        for (final Calculator calc : calculators(StepModel.refiner(3))) {
+            final StepModel result = calc.run(new StepModel(10, 0), budget, new Incumbent<>()).get();
+            assertEquals(7, result.getScore().intValue());
+        }
+    }
+
+    @Test
+    public void returnsTheIncumbentWhenTheBudgetRunsOut() throws Exception {
+        final WideningBudget budget = WideningBudget.builder().maxLevels(2).build();
+        final StepModel seeded = new StepModel(0, -1);
+        for (final Calculator calc : calculators(StepModel.refiner(3))) {
+            final Incumbent<Integer, StepModel> incumbent = new Incumbent<>();
+            incumbent.offer(seeded);
+            assertSame(seeded, calc.run(new StepModel(10, 0), budget, incumbent).get());
+        }
+    }
+
+    @Test
+    public void completeModelsBecomeTheIncumbent() throws Exception {
+        for (final Calculator calc : calculators(StepModel.refiner(3))) {
+            final Incumbent<Integer, StepModel> incumbent = new Incumbent<>();
+            final StepModel result = calc.run(new StepModel(4, 0), WideningBudget.unlimited(), incumbent).get();
+            assertTrue(result.isDone());
+            assertSame(result, incumbent.get().get());
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void timeLimitCancelsEndlessRefinements() throws Exception {
+        final WideningBudget budget = WideningBudget.builder().timeLimit(100, TimeUnit.MILLISECONDS).build();
+        for (final Calculator calc : calculators(endless())) {
+            final StepModel start = new StepModel(10, 0);
+            // Nothing was selected before the time ran out, so the start model is the best there is
+            assertSame(start, calc.run(start, budget, new Incumbent<>()).get());
+        }
+    }
+
+    /**
+     * @return a refiner whose refinements never end, creating a child every 0.1 ms
+     */
+    private static WideningRefiner<Integer, StepModel, StepModel> endless() {
+        return m -> () -> new Iterator<StepModel>() {
+            private long m_next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public StepModel next() {
+                LockSupport.parkNanos(100_000);
+                return new StepModel(m.getScore() - 1, m_next++);
+            }
+        };
+    }
+
+    private Calculator[] calculators(final WideningRefiner<Integer, StepModel, StepModel> refiner) {
+        final WideningCalculator<Integer, StepModel, StepModel> sequential =
+                new WideningCalculator<>(refiner, StepModel.selector(4));
+        final ForkJoinWideningCalculator<Integer, StepModel, StepModel> forkJoin =
+                new ForkJoinWideningCalculator<>(refiner, StepModel.selector(4), m_pool);
+        final ParallelWideningCalculator<Integer, StepModel, StepModel> parallel =
+                new ParallelWideningCalculator<>(refiner, StepModel.selector(4), m_exec);
+        final PipelinedWideningCalculator<Integer, StepModel, StepModel> pipelined =
+                new PipelinedWideningCalculator<>(refiner, StepModel.selector(4), m_exec);
+        return new Calculator[] {sequential::run, forkJoin::run, parallel::run, pipelined::run};
+    }
+
+    @FunctionalInterface
+    private interface Calculator {
+        Optional<StepModel> run(StepModel start, WideningBudget budget, Incumbent<Integer, StepModel> incumbent)
+                throws Exception;
+    }
+}
@@ -0,0 +1,63 @@
+package de.unikn.widening.joins;
+
+import java.math.BigDecimal;
+
+import de.unikn.widening.base.ConcurrentSelector;
+import de.unikn.widening.base.collections.ConcurrentBucketTable;
+
+/**
+ * Hashed bucket selector whose buckets are shared by all refinement workers of a level.
+ * Like in the {@link HashedBucketSelector}, every model goes to the bucket of its hash code, but workers
+ * replace the model of a bucket by compare-and-set, so the global selection reads the buckets directly
+ * instead of merging a copy per worker. Scores are compared at a reduced precision, which keeps
+ * the first of two models whose costs differ only in the last digits.
+ */
+public class ConcurrentBucketSelector extends DefaultJTMSelector
+    implements ConcurrentSelector<BigDecimal, JoinTreeModel, JoinTreeModel, ConcurrentBucketTable<JoinTreeModel>> {
+
+    // Dropping the low mantissa bits keeps the order of non-negative doubles
+    private static final int DROPPED_BITS = 64 - 1 - ConcurrentBucketTable.KEY_BITS;
+
+    private int m_k;
+
+    public ConcurrentBucketSelector(final int k) {
+        m_k = k;
+    }
+
+    @Override
+    public Iterable<JoinTreeModel> select(final Iterable<JoinTreeModel> models) {
+        final ConcurrentBucketTable<JoinTreeModel> selected = createState();
+        for (final JoinTreeModel m : models) {
+            accumulate(selected, m);
+        }
+        return finish(selected);
+    }
+
+    @Override
+    public ConcurrentBucketTable<JoinTreeModel> createState() {
+        return new ConcurrentBucketTable<>(m_k);
+    }
+
+    @Override
+    public void accumulate(final ConcurrentBucketTable<JoinTreeModel> selected, final JoinTreeModel m) {
+        final int bucket = Math.floorMod(m.hashCode(), m_k);
+        final double cost = Math.max(0, m.getScore().doubleValue());
+        selected.offer(bucket, Double.doubleToLongBits(cost) >>> DROPPED_BITS, m);
+    }
+
+    @Override
+    public ConcurrentBucketTable<JoinTreeModel> merge(final ConcurrentBucketTable<JoinTreeModel> left,
+            final ConcurrentBucketTable<JoinTreeModel> right) {
+        if (left != right) {
+            for (final JoinTreeModel m : right.elements()) {
+                accumulate(left, m);
+            }
+        }
+        return left;
+    }
+
+    @Override
+    public Iterable<JoinTreeModel> finish(final ConcurrentBucketTable<JoinTreeModel> selected) {
+        return selected.elements();
+    }
+}
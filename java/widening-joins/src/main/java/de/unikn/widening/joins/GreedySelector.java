@@ -1,14 +1,21 @@
 package de.unikn.widening.joins;
 
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import de.unikn.widening.base.MergeableSelector;
+import de.unikn.widening.base.collections.BoundedLongKeyHeap;
 
 /**
  * Selector that always returns the k best models.
+ * The models are kept in a heap keyed by their costs as doubles, so the score of a model is computed once
+ * and a model worse than the k-th is rejected by a single comparison.
  *
  * @author Alexander Fillbrunn
  */
-public class GreedySelector extends DefaultJTMSelector {
+public class GreedySelector extends DefaultJTMSelector
+    implements MergeableSelector<BigDecimal, JoinTreeModel, JoinTreeModel, BoundedLongKeyHeap<JoinTreeModel>> {
 
     private final int m_k;
 
@@ -18,25 +25,49 @@ public class GreedySelector extends DefaultJTMSelector {
 
     @Override
     public Iterable<JoinTreeModel> select(final Iterable<JoinTreeModel> models) {
+        final BoundedLongKeyHeap<JoinTreeModel> heap = createState();
+        for (final JoinTreeModel next : models) {
+            accumulate(heap, next);
+        }
+        return finish(heap);
+    }
 
-        final Iterator<JoinTreeModel> iter = models.iterator();
-        final TreeSet<JoinTreeModel> ts = new TreeSet<>((a, b) -> {
-            final int i = b.getScore().compareTo(a.getScore());
-            return i == 0 ? Integer.compare(a.hashCode(), b.hashCode()) : i;
-        });
+    @Override
+    public BoundedLongKeyHeap<JoinTreeModel> createState() {
+        return new BoundedLongKeyHeap<>(m_k);
+    }
 
-        while (ts.size() < m_k && iter.hasNext()) {
-            ts.add(iter.next());
+    @Override
+    public void accumulate(final BoundedLongKeyHeap<JoinTreeModel> heap, final JoinTreeModel next) {
+        // Costs are not negative, so their bits order like the costs themselves
+        final long key = Double.doubleToLongBits(next.getScore().doubleValue());
+        if (heap.isFull() && (heap.size() == 0 || heap.peekKey() <= key)) {
+            return;
         }
-
-        while (iter.hasNext()) {
-            final JoinTreeModel next = iter.next();
-            final Iterator<JoinTreeModel> it = ts.iterator();
-            if (it.next().getScore().compareTo(next.getScore()) > 0) {
-                it.remove();
-                ts.add(next);
+        final int hash = next.hashCode();
+        for (int i = 0; i < heap.size(); i++) {
+            // Models with equal costs and hashes count as duplicates
+            if (heap.keyAt(i) == key && heap.elementAt(i).hashCode() == hash) {
+                return;
             }
         }
-        return ts;
+        heap.add(key, next);
+    }
+
+    @Override
+    public BoundedLongKeyHeap<JoinTreeModel> merge(final BoundedLongKeyHeap<JoinTreeModel> left,
+            final BoundedLongKeyHeap<JoinTreeModel> right) {
+        for (int i = 0; i < right.size(); i++) {
+            accumulate(left, right.elementAt(i));
+        }
+        return left;
+    }
+
+    @Override
+    public Iterable<JoinTreeModel> finish(final BoundedLongKeyHeap<JoinTreeModel> heap) {
+        // Worst first, like the tree set this selector used before
+        final List<JoinTreeModel> models = heap.toSortedList();
+        Collections.reverse(models);
+        return models;
     }
 }
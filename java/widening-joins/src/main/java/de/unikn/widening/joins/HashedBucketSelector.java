@@ -1,9 +1,13 @@
 package de.unikn.widening.joins;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
-public class HashedBucketSelector extends DefaultJTMSelector {
+import de.unikn.widening.base.MergeableSelector;
+
+public class HashedBucketSelector extends DefaultJTMSelector
+    implements MergeableSelector<BigDecimal, JoinTreeModel, JoinTreeModel, JoinTreeModel[]> {
 
     private int m_k;
 
@@ -11,15 +15,50 @@ public class HashedBucketSelector extends DefaultJTMSelector {
         m_k = k;
     }
 
+    /**
+     * @param m a model
+     * @return the bucket the model is assigned to
+     */
+    public int bucket(final JoinTreeModel m) {
+        return Math.floorMod(m.hashCode(), m_k);
+    }
+
     @Override
     public Iterable<JoinTreeModel> select(final Iterable<JoinTreeModel> models) {
-        final JoinTreeModel[] selected = new JoinTreeModel[m_k];
+        final JoinTreeModel[] selected = createState();
         for (JoinTreeModel m : models) {
-            final int bucket = Math.floorMod(m.hashCode(), m_k);
-            if (selected[bucket] == null || selected[bucket].getScore().compareTo(m.getScore()) > 0) {
-                selected[bucket] = m;
+            accumulate(selected, m);
+        }
+        return finish(selected);
+    }
+
+    @Override
+    public JoinTreeModel[] createState() {
+        return new JoinTreeModel[m_k];
+    }
+
+    @Override
+    public void accumulate(final JoinTreeModel[] selected, final JoinTreeModel m) {
+        final int bucket = bucket(m);
+        if (selected[bucket] == null || selected[bucket].getScore().compareTo(m.getScore()) > 0) {
+            selected[bucket] = m;
+        }
+    }
+
+    @Override
+    public JoinTreeModel[] merge(final JoinTreeModel[] left, final JoinTreeModel[] right) {
+        // A model always hashes to the same bucket, so buckets are merged one by one
+        for (int i = 0; i < m_k; i++) {
+            final JoinTreeModel m = right[i];
+            if (m != null && (left[i] == null || left[i].getScore().compareTo(m.getScore()) > 0)) {
+                left[i] = m;
             }
         }
+        return left;
+    }
+
+    @Override
+    public Iterable<JoinTreeModel> finish(final JoinTreeModel[] selected) {
         final List<JoinTreeModel> out = new ArrayList<>(m_k);
         for (final JoinTreeModel m : selected) {
             if (m != null) {
@@ -28,5 +67,4 @@ public class HashedBucketSelector extends DefaultJTMSelector {
         }
         return out;
     }
-
 }
@@ -2,15 +2,21 @@ package de.unikn.widening.joins;
 
 import java.math.BigDecimal;
 
+import de.unikn.widening.base.execution.TranspositionTable;
+
 public final class JoinPredicate implements Comparable<JoinPredicate> {
     private final int m_table1;
     private final int m_table2;
     private final BigDecimal m_selectivity;
+    private final long m_key;
 
     public JoinPredicate(final int table1, final int table2, final BigDecimal selectivity) {
         this.m_table1 = Math.min(table1, table2);
         this.m_table2 = Math.max(table1, table2);
         this.m_selectivity = selectivity;
+        final long tables = ((long) this.m_table1 << 32 | this.m_table2) + 1L;
+        this.m_key = TranspositionTable.mix(TranspositionTable.mix(tables * JoinTree.KEY_GAMMA)
+                ^ selectivity.hashCode());
     }
 
     public int getFirstTable() {
@@ -25,6 +31,13 @@ public final class JoinPredicate implements Comparable<JoinPredicate> {
         return this.m_selectivity;
     }
 
+    /**
+     * @return the Zobrist key of the predicate, XOR-ed into the state hash of models where it is still open
+     */
+    public long getKey() {
+        return this.m_key;
+    }
+
     @Override
     public int compareTo(final JoinPredicate that) {
         final int res1 = Integer.compare(this.m_table1, that.m_table1);
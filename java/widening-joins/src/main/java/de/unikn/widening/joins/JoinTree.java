@@ -7,12 +7,17 @@ import java.util.BitSet;
 import java.util.Set;
 import java.util.function.Consumer;
 
+import de.unikn.widening.base.execution.TranspositionTable;
+
 /**
  * Class representing a join tree.
  * @author Leonard Woerteler
  *
  */
 public abstract class JoinTree {
+    /** Odd constant spacing the inputs of the keys, so small ids give unrelated keys. */
+    static final long KEY_GAMMA = 0x9E3779B97F4A7C15L;
+
     /** Hidden default constructor. */
     JoinTree() {
     }
@@ -117,6 +122,11 @@ public abstract class JoinTree {
      */
     abstract int getMaxID();
 
+    /**
+     * @return a 64 bit key of this tree, equal for equal trees and well spread for different ones
+     */
+    abstract long getKey();
+
     @Override
     public final String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -221,6 +231,8 @@ public abstract class JoinTree {
 
         private int m_hashCode = 0;
 
+        private final long m_key;
+
         private final BigDecimal m_card;
 
         private final BigDecimal m_costs;
@@ -261,6 +273,13 @@ public abstract class JoinTree {
             this.m_children = inputs;
             this.m_tables = tables;
             this.m_joins = innerNodes;
+
+            // The inputs are sorted, so equal joins fold the same keys in the same order
+            long key = KEY_GAMMA;
+            for (final JoinTree t : inputs) {
+                key = TranspositionTable.mix(key ^ t.getKey()) + KEY_GAMMA;
+            }
+            this.m_key = key;
         }
 
         @Override
@@ -288,6 +307,11 @@ public abstract class JoinTree {
             return this.m_tables.previousSetBit(this.m_tables.size() - 1);
         }
 
+        @Override
+        long getKey() {
+            return this.m_key;
+        }
+
         @Override
         int fillClusterTable(final int[] clusterTable, final int min, final boolean last) {
             int next = min;
@@ -505,6 +529,9 @@ public abstract class JoinTree {
         //private final long m_card;
         private final BigDecimal m_card;
 
+        /** Zobrist key of the table. */
+        private final long m_key;
+
         /**
          * Constructs a new leaf node with the given leaf ID and name.
          *
@@ -517,6 +544,7 @@ public abstract class JoinTree {
             this.m_name = name;
             //this.m_card = cardinality;
             this.m_card = new BigDecimal(cardinality);
+            this.m_key = TranspositionTable.mix((id + 1L) * KEY_GAMMA);
         }
 
         @Override
@@ -539,6 +567,11 @@ public abstract class JoinTree {
             return this.m_tableID;
         }
 
+        @Override
+        long getKey() {
+            return this.m_key;
+        }
+
         @Override
         int fillClusterTable(final int[] clusterTable, final int nextID, final boolean last) {
             clusterTable[3 * this.m_tableID + 2] = nextID;
@@ -1,12 +1,13 @@
 package de.unikn.widening.joins;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -23,6 +24,10 @@ public final class JoinTreeModel implements WideningModel<BigDecimal>, Candidate
     private final boolean m_isPseudoRoot;
     private final JoinTree m_root;
     private final JoinPredicate[] m_predicates;
+    private final long m_stateHash;
+
+    // The possible joins grouped by the trees they join, computed when first needed
+    private volatile Joins m_joins;
 
     /**
      * Creates a new join tree model.
@@ -43,12 +48,25 @@ public final class JoinTreeModel implements WideningModel<BigDecimal>, Candidate
         }
         Arrays.sort(predicates);
         m_predicates = predicates;
+        m_stateHash = stateHash(predicates, getTrees());
     }
 
     public JoinTreeModel(final JoinTree root) {
         m_root = root;
         m_isPseudoRoot = false;
         m_predicates = new JoinPredicate[0];
+        m_stateHash = root.getKey();
+    }
+
+    private static long stateHash(final JoinPredicate[] predicates, final JoinTree[] trees) {
+        long hash = 0;
+        for (final JoinPredicate pred : predicates) {
+            hash ^= pred.getKey();
+        }
+        for (final JoinTree tree : trees) {
+            hash ^= tree.getKey();
+        }
+        return hash;
     }
 
     public Set<Integer> getBiPartIndices() {
@@ -68,6 +86,13 @@ public final class JoinTreeModel implements WideningModel<BigDecimal>, Candidate
         return Arrays.hashCode(m_predicates) * 17 + m_root.hashCode() * 31;
     }
 
+    /**
+     * @return a 64 bit Zobrist hash of the state, the XOR of the keys of the open predicates and of the trees
+     */
+    public long stateHash() {
+        return m_stateHash;
+    }
+
     @Override
     public boolean equals(final Object obj) {
         if (this == obj) {
@@ -143,31 +168,38 @@ public final class JoinTreeModel implements WideningModel<BigDecimal>, Candidate
      * @return a set of refined models
      */
     public Set<JoinTreeModel> refine() {
+        final Set<JoinTreeModel> result = new HashSet<>();
+        refine(0, m_predicates.length, result::add);
+        return result;
+    }
+
+    /**
+     * Refines the model by performing the joins whose first predicate has an index in the given range.
+     * Disjoint ranges create disjoint sets of models and the range <code>[0, getPredicates().length)</code>
+     * creates the same models as {@link #refine()}.
+     * @param from the first predicate index, inclusive
+     * @param to the last predicate index, exclusive
+     * @return the refined models for the range
+     */
+    public List<JoinTreeModel> refine(final int from, final int to) {
+        final List<JoinTreeModel> result = new ArrayList<>();
+        refine(from, to, result::add);
+        return result;
+    }
+
+    private void refine(final int from, final int to, final Consumer<JoinTreeModel> result) {
         if (isDone()) {
             throw new IllegalArgumentException("This tree cannot be refined further.");
         }
-        final Set<JoinTreeModel> result = new HashSet<>();
 
         final JoinTree[] trees = getTrees();
-        final int[] tableToTree = new int[m_root.getNumTables()];
-        for (int i = 0; i < trees.length; i++) {
-            final BitSet tables = trees[i].getTables();
-            for (int t = tables.nextSetBit(0); t >= 0; t = tables.nextSetBit(t + 1)) {
-                tableToTree[t] = i;
+        final Joins joins = joins(trees);
+        for (int first = Math.max(from, 0), end = Math.min(to, m_predicates.length); first < end; first++) {
+            final BitSet usedPreds = joins.m_predicates[first];
+            if (usedPreds == null) {
+                continue;
             }
-        }
-
-        final Map<Long, BitSet> joins = new HashMap<>();
-        for (int i = 0, n = m_predicates.length; i < n; i++) {
-            final JoinPredicate pred = m_predicates[i];
-            final int left = tableToTree[pred.getFirstTable()];
-            final int right = tableToTree[pred.getSecondTable()];
-            final long key = (long) Math.min(left, right) << 32L | Math.max(left, right) & 0xFFFFFFFFL;
-            joins.computeIfAbsent(key, k -> new BitSet()).set(i);
-        }
-
-        for (final Entry<Long, BitSet> e : joins.entrySet()) {
-            final long key = e.getKey();
+            final long key = joins.m_trees[first];
             final int left = (int) (key >>> 32L);
             final int right = (int) (key & 0xFFFFFFFFL);
             final JoinTree[] remaining = new JoinTree[trees.length - 1];
@@ -178,7 +210,6 @@ public final class JoinTreeModel implements WideningModel<BigDecimal>, Candidate
             }
 
             final int numPreds = m_predicates.length;
-            final BitSet usedPreds = e.getValue();
             final JoinPredicate[] preds = new JoinPredicate[numPreds - usedPreds.cardinality()];
             BigDecimal selectivity = BigDecimal.ONE;
 
@@ -192,9 +223,46 @@ public final class JoinTreeModel implements WideningModel<BigDecimal>, Candidate
             }
 
             remaining[remaining.length - 1] = JoinTree.newNode(selectivity, trees[left], trees[right]);
-            result.add(new JoinTreeModel(preds, remaining));
+            result.accept(new JoinTreeModel(preds, remaining));
         }
-        return result;
+    }
+
+    /**
+     * Groups the predicates by the pair of trees they join, once per model, so that refining several ranges
+     * of the model only enumerates the joins of each range.
+     */
+    private Joins joins(final JoinTree[] trees) {
+        Joins joins = m_joins;
+        if (joins == null) {
+            final int[] tableToTree = new int[m_root.getNumTables()];
+            for (int i = 0; i < trees.length; i++) {
+                final BitSet tables = trees[i].getTables();
+                for (int t = tables.nextSetBit(0); t >= 0; t = tables.nextSetBit(t + 1)) {
+                    tableToTree[t] = i;
+                }
+            }
+
+            final BitSet[] predicates = new BitSet[m_predicates.length];
+            final long[] pairs = new long[m_predicates.length];
+            final Map<Long, Integer> firstPredicates = new HashMap<>();
+            for (int i = 0, n = m_predicates.length; i < n; i++) {
+                final JoinPredicate pred = m_predicates[i];
+                final int left = tableToTree[pred.getFirstTable()];
+                final int right = tableToTree[pred.getSecondTable()];
+                final long key = (long) Math.min(left, right) << 32L | Math.max(left, right) & 0xFFFFFFFFL;
+                final Integer first = firstPredicates.putIfAbsent(key, i);
+                if (first == null) {
+                    predicates[i] = new BitSet();
+                    predicates[i].set(i);
+                    pairs[i] = key;
+                } else {
+                    predicates[first].set(i);
+                }
+            }
+            joins = new Joins(predicates, pairs);
+            m_joins = joins;
+        }
+        return joins;
     }
 
     @Override
@@ -225,4 +293,19 @@ public final class JoinTreeModel implements WideningModel<BigDecimal>, Candidate
     public JoinTreeModel create() {
         return this;
     }
+
+    /**
+     * The joins of a model, indexed by their first predicate. Only the entries of first predicates are set.
+     */
+    private static final class Joins {
+        // The predicates used by the join
+        private final BitSet[] m_predicates;
+        // The indices of the joined trees, the lower one in the upper 32 bits
+        private final long[] m_trees;
+
+        Joins(final BitSet[] predicates, final long[] trees) {
+            m_predicates = predicates;
+            m_trees = trees;
+        }
+    }
 }
@@ -2,13 +2,23 @@ package de.unikn.widening.joins.tests;
 
 import java.math.BigDecimal;
 
-import de.unikn.widening.base.WideningRefiner;
+import de.unikn.widening.base.SplittableRefiner;
 import de.unikn.widening.joins.JoinTreeModel;
 
-public class JoinTreeModelRefiner implements WideningRefiner<BigDecimal, JoinTreeModel, JoinTreeModel> {
+public class JoinTreeModelRefiner implements SplittableRefiner<BigDecimal, JoinTreeModel, JoinTreeModel> {
 
     @Override
     public Iterable<JoinTreeModel> refine(final JoinTreeModel model) {
         return model.refine();
     }
+
+    @Override
+    public int size(final JoinTreeModel model) {
+        return model.getPredicates().length;
+    }
+
+    @Override
+    public Iterable<JoinTreeModel> refine(final JoinTreeModel model, final int from, final int to) {
+        return model.refine(from, to);
+    }
 }
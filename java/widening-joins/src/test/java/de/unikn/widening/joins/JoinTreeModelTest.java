@@ -0,0 +1,53 @@
+package de.unikn.widening.joins;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class JoinTreeModelTest {
+
+    @Test
+    public void rangesSplitTheRefinement() {
+        final JoinTreeModel model = TopologyHelper.snowflakeTest(2, 3, new Random(0), true);
+        final JoinTreeModel child = model.refine(0, 1).get(0);
+        for (final JoinTreeModel m : new JoinTreeModel[] {model, child}) {
+            final Set<JoinTreeModel> expected = m.refine();
+            final int size = m.getPredicates().length;
+            for (final int parts : new int[] {1, 2, 5, size}) {
+                final Set<JoinTreeModel> actual = new HashSet<>();
+                int total = 0;
+                for (int p = 0; p < parts; p++) {
+                    final List<JoinTreeModel> range = m.refine(size * p / parts, size * (p + 1) / parts);
+                    total += range.size();
+                    actual.addAll(range);
+                }
+                // Disjoint ranges create disjoint models
+                assertEquals(actual.size(), total);
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void equalStatesHashEqually() {
+        final JoinTreeModel model = TopologyHelper.snowflakeTest(2, 2, new Random(1), true);
+        final Set<Long> hashes = new HashSet<>();
+        final Set<JoinTreeModel> models = new HashSet<>();
+        for (final JoinTreeModel child : model.refine()) {
+            for (final JoinTreeModel grandChild : child.refine()) {
+                if (models.add(grandChild)) {
+                    assertTrue(hashes.add(grandChild.stateHash()));
+                } else {
+                    // The same state reached by joining in another order
+                    assertTrue(hashes.contains(grandChild.stateHash()));
+                }
+            }
+        }
+    }
+}
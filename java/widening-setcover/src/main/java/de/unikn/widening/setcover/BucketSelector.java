@@ -1,15 +1,14 @@
 package de.unikn.widening.setcover;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.BiFunction;
 
-import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.MergeableSelector;
 
-public class BucketSelector implements WideningSelector<Integer, SetCoveringModel, ModelCandidate> {
+public class BucketSelector implements MergeableSelector<Integer, SetCoveringModel, ModelCandidate, BucketSelector.State> {
 
     private int m_k;
     private BiFunction<ModelCandidate, Integer, Integer> m_bucketAssigner;
@@ -25,26 +24,29 @@ public class BucketSelector implements WideningSelector<Integer, SetCoveringMode
         m_bucketAssigner = bucketAssigner;
     }
 
-    private Iterable<ModelCandidate> select(final Iterable<ModelCandidate> models) {
-        final ModelCandidate[] selected = new ModelCandidate[m_k];
+    /**
+     * @param model a candidate
+     * @return the bucket the candidate is assigned to
+     */
+    public int bucket(final ModelCandidate model) {
+        return m_bucketAssigner.apply(model, m_k);
+    }
 
+    private Iterable<ModelCandidate> select(final Iterable<ModelCandidate> models) {
+        final State state = createState();
         for (final ModelCandidate model : models) {
-            if (model == null) {
-                continue;
-            }
-            if (model.isDone()) {
-                return Collections.singleton(model);
-            }
-            ModelCandidate m = model;
-            final int bucket = m_bucketAssigner.apply(m, m_k);
-            final ModelCandidate current = selected[bucket];
-            if (current == null
-                    || current.getScore() > m.getScore()
-                    || (current.getScore() == m.getScore() && current.leastSet() > m.leastSet())) {
-                selected[bucket] = m;
+            accumulate(state, model);
+            if (state.m_done != null) {
+                break;
             }
         }
-        return Arrays.asList(selected);
+        return finish(state);
+    }
+
+    private static boolean isBetter(final ModelCandidate m, final ModelCandidate current) {
+        return current == null
+                || current.getScore() > m.getScore()
+                || (current.getScore().equals(m.getScore()) && current.leastSet() > m.leastSet());
     }
 
 	@Override
@@ -64,4 +66,66 @@ public class BucketSelector implements WideningSelector<Integer, SetCoveringMode
 		return out;
 	}
 
+    @Override
+    public State createState() {
+        return new State(m_k);
+    }
+
+    @Override
+    public void accumulate(final State state, final ModelCandidate model) {
+        if (model == null || state.m_done != null) {
+            return;
+        }
+        if (model.isDone()) {
+            state.m_done = model;
+            return;
+        }
+        final int bucket = bucket(model);
+        if (isBetter(model, state.m_selected[bucket])) {
+            state.m_selected[bucket] = model;
+        }
+    }
+
+    @Override
+    public State merge(final State left, final State right) {
+        if (left.m_done != null) {
+            return left;
+        }
+        if (right.m_done != null) {
+            return right;
+        }
+        // Candidates keep their buckets, so merging only compares bucket by bucket
+        for (int i = 0; i < m_k; i++) {
+            if (right.m_selected[i] != null && isBetter(right.m_selected[i], left.m_selected[i])) {
+                left.m_selected[i] = right.m_selected[i];
+            }
+        }
+        return left;
+    }
+
+    @Override
+    public Iterable<ModelCandidate> finish(final State state) {
+        if (state.m_done != null) {
+            return Collections.singleton(state.m_done);
+        }
+        final List<ModelCandidate> out = new ArrayList<>(m_k);
+        for (final ModelCandidate m : state.m_selected) {
+            if (m != null) {
+                out.add(m);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * The best candidate per bucket seen so far, or a finished candidate if one was seen.
+     */
+    public static final class State {
+        private final ModelCandidate[] m_selected;
+        private ModelCandidate m_done;
+
+        private State(final int k) {
+            m_selected = new ModelCandidate[k];
+        }
+    }
 }
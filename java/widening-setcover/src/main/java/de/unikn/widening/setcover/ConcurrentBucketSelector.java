@@ -0,0 +1,118 @@
+package de.unikn.widening.setcover;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+
+import de.unikn.widening.base.ConcurrentSelector;
+import de.unikn.widening.base.collections.ConcurrentBucketTable;
+
+/**
+ * Bucket selector whose buckets are shared by all refinement workers of a level.
+ * Workers replace the candidate of a bucket by compare-and-set, so the global selection reads the
+ * buckets directly instead of merging a copy per worker. Candidates are ranked like in the
+ * {@link BucketSelector}, by their score and then by their least set. Both are packed into the key of a bucket,
+ * with as many bits for the least set as the number of sets of the instance needs. If the scores do not fit
+ * into the remaining bits, candidates with equal keys are compared by score and least set directly.
+ */
+public class ConcurrentBucketSelector
+    implements ConcurrentSelector<Integer, SetCoveringModel, ModelCandidate, ConcurrentBucketSelector.State> {
+
+    private static final Comparator<ModelCandidate> ORDER = (a, b) -> {
+        final int i = Integer.compare(a.getScoreValue(), b.getScoreValue());
+        return i == 0 ? Integer.compare(a.leastSet(), b.leastSet()) : i;
+    };
+
+    private int m_k;
+    private BiFunction<ModelCandidate, Integer, Integer> m_bucketAssigner;
+
+    public ConcurrentBucketSelector(final int k, final BiFunction<ModelCandidate, Integer, Integer> bucketAssigner) {
+        m_k = k;
+        m_bucketAssigner = bucketAssigner;
+    }
+
+    @Override
+    public Iterable<ModelCandidate> selectLocal(final Iterable<ModelCandidate> models) {
+        final State state = createState();
+        for (final ModelCandidate model : models) {
+            accumulate(state, model);
+            if (state.m_done.get() != null) {
+                break;
+            }
+        }
+        return finish(state);
+    }
+
+    @Override
+    public Iterable<SetCoveringModel> selectGlobal(final Iterable<ModelCandidate> models) {
+        final List<SetCoveringModel> out = new ArrayList<>();
+        for (final ModelCandidate c : selectLocal(models)) {
+            out.add(c.create());
+        }
+        return out;
+    }
+
+    @Override
+    public State createState() {
+        return new State(m_k);
+    }
+
+    @Override
+    public void accumulate(final State state, final ModelCandidate model) {
+        if (model == null || state.m_done.get() != null) {
+            return;
+        }
+        if (model.isDone()) {
+            state.m_done.compareAndSet(null, model);
+            return;
+        }
+        final int bucket = m_bucketAssigner.apply(model, m_k);
+        // Every least set fits into these bits, so only clamped scores can make keys of different candidates equal
+        final int leastSetBits = 32 - Integer.numberOfLeadingZeros(model.getParent().getTotalSets());
+        final long score = Math.min(model.getScoreValue(), ConcurrentBucketTable.MAX_KEY >>> leastSetBits);
+        // Only compute the least set if the score does not decide already
+        if ((state.m_buckets.key(bucket) >>> leastSetBits) < score) {
+            return;
+        }
+        state.m_buckets.offer(bucket, score << leastSetBits | model.leastSet(), model, ORDER);
+    }
+
+    @Override
+    public State merge(final State left, final State right) {
+        if (left == right) {
+            return left;
+        }
+        final ModelCandidate done = right.m_done.get();
+        if (done != null) {
+            left.m_done.compareAndSet(null, done);
+        }
+        for (final ModelCandidate m : right.m_buckets.elements()) {
+            accumulate(left, m);
+        }
+        return left;
+    }
+
+    @Override
+    public Iterable<ModelCandidate> finish(final State state) {
+        final ModelCandidate done = state.m_done.get();
+        if (done != null) {
+            return Collections.singleton(done);
+        }
+        return state.m_buckets.elements();
+    }
+
+    /**
+     * The buckets of a level and a finished candidate if one was seen. Safe to update from several threads.
+     */
+    public static final class State {
+        private final ConcurrentBucketTable<ModelCandidate> m_buckets;
+        private final AtomicReference<ModelCandidate> m_done = new AtomicReference<>();
+
+        private State(final int k) {
+            m_buckets = new ConcurrentBucketTable<>(k);
+        }
+    }
+}
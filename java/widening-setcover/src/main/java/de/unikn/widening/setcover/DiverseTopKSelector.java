@@ -6,16 +6,37 @@ import java.util.PriorityQueue;
 
 import de.unikn.widening.base.WideningSelector;
 
+/**
+ * Selects the best candidates that are not too similar to any better selected candidate. The local selection
+ * compares the sets the candidates add, the global selection the elements the candidates cover.
+ * Similarities are either computed exactly from the elements or estimated from {@link MinHash} signatures,
+ * which takes time proportional to the signature length instead of the size of the universe.
+ */
 public class DiverseTopKSelector implements WideningSelector<Integer, SetCoveringModel, ModelCandidate> {
 
     private int m_k;
     private double m_localThreshold;
     private double m_globalThreshold;
+    private int m_signatureLength;
 
     public DiverseTopKSelector(final int k, final double localThreshold, final double globalThreshold) {
+        this(k, localThreshold, globalThreshold, 0);
+    }
+
+    /**
+     * Creates a new selector.
+     * @param k the number of candidates to select
+     * @param localThreshold the smallest distance, one minus the similarity, between locally selected candidates
+     * @param globalThreshold the smallest distance between globally selected candidates
+     * @param signatureLength the length of the MinHash signatures estimating similarities, 0 to compute them
+     *          exactly. Longer signatures are more accurate but slower.
+     */
+    public DiverseTopKSelector(final int k, final double localThreshold, final double globalThreshold,
+            final int signatureLength) {
         m_k = k;
         m_localThreshold = localThreshold;
         m_globalThreshold = globalThreshold;
+        m_signatureLength = signatureLength;
     }
 
     public List<ModelCandidate> select(
@@ -29,9 +50,14 @@ public class DiverseTopKSelector implements WideningSelector<Integer, SetCoverin
             sorted.add(c);
         }
 
+        if (m_signatureLength > 0) {
+            return selectBySignature(sorted, t, useSimpleJaccard);
+        }
+
         List<ModelCandidate> selected = new ArrayList<>();
 
-        for (ModelCandidate c : sorted) {
+        // Polled, iterating a priority queue does not follow its order
+        for (ModelCandidate c = sorted.poll(); c != null; c = sorted.poll()) {
             boolean take = true;
             for (ModelCandidate sel : selected) {
                 ModelCandidate s = sel;
@@ -52,6 +78,42 @@ public class DiverseTopKSelector implements WideningSelector<Integer, SetCoverin
         return selected;
     }
 
+    private List<ModelCandidate> selectBySignature(final PriorityQueue<ModelCandidate> sorted, final double t,
+            final boolean addedSetsOnly) {
+        final List<ModelCandidate> selected = new ArrayList<>();
+        final List<int[]> signatures = new ArrayList<>();
+        MinHash minHash = null;
+
+        for (ModelCandidate c = sorted.poll(); c != null; c = sorted.poll()) {
+            if (minHash == null) {
+                minHash = c.getParent().getInstance().getMinHash(m_signatureLength);
+            }
+            final int[] signature;
+            if (addedSetsOnly) {
+                signature = minHash.signature(c.getAddedSetIndex());
+            } else {
+                // The parent's signature is computed once for all its candidates
+                signature = minHash.union(c.getParent().getSignature(minHash), c.getAddedSetIndex());
+            }
+            boolean take = true;
+            for (int[] s : signatures) {
+                if (1 - MinHash.similarity(s, signature) < t) {
+                    take = false;
+                    break;
+                }
+            }
+            if (take) {
+                selected.add(c);
+                signatures.add(signature);
+                if (selected.size() == m_k) {
+                    break;
+                }
+            }
+        }
+
+        return selected;
+    }
+
     @Override
     public Iterable<ModelCandidate> selectLocal(
             final Iterable<ModelCandidate> models) {
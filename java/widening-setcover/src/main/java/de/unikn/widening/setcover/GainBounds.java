@@ -0,0 +1,197 @@
+package de.unikn.widening.setcover;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import de.unikn.widening.base.collections.IntBitmap;
+
+/**
+ * Upper bounds of the gains of the sets for the {@link LazyGreedyRefiner}, shared by a model and its descendants.
+ * The bounds are a sorted array shared by all models since the bounds were last flattened, and a small sorted
+ * overlay of the bounds tightened since, which replace the shared bounds of their sets. Refining a model only
+ * reads the bounds it visits and copies the overlay, instead of copying the bounds of all sets. Once the overlay
+ * grows beyond a fraction of the shared bounds, both are merged into new shared bounds.
+ * <p>
+ * An entry packs a bound and a set into a long, so that larger bounds and then smaller sets come first.
+ * The bounds are not changed once created.
+ */
+final class GainBounds {
+
+    private static final long INDEX_MASK = 0x7FFFFFFFL;
+    private static final long[] NO_ENTRIES = new long[0];
+    // The overlay is merged into the shared bounds once it has this many entries and an eighth of their size
+    private static final int MIN_FLATTEN = 64;
+    private static final int FLATTEN_SHIFT = 3;
+
+    // Both in descending order
+    private final long[] m_shared;
+    private final long[] m_overlay;
+    // Open addressing set of the sets in the overlay plus one, 0 marks free slots
+    private final int[] m_overlaySets;
+    private final int m_mask;
+
+    private GainBounds(final long[] shared, final long[] overlay) {
+        m_shared = shared;
+        m_overlay = overlay;
+        // At most half full, so probe sequences stay short
+        m_overlaySets = new int[Integer.highestOneBit(Math.max(overlay.length, 1)) << 2];
+        m_mask = m_overlaySets.length - 1;
+        for (final long entry : overlay) {
+            m_overlaySets[slot(set(entry))] = set(entry) + 1;
+        }
+    }
+
+    /**
+     * @param instance a set cover instance
+     * @return the bounds of a model without used sets, the sizes of the sets
+     */
+    static GainBounds initial(final SetCoverInstance instance) {
+        final long[] entries = new long[instance.getNumSets()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = entry(instance.getSetSize(i), i);
+        }
+        return new GainBounds(descending(entries), NO_ENTRIES);
+    }
+
+    /**
+     * @return a cursor over the bounds, largest first
+     */
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Creates the bounds of the children of a model.
+     * @param tightened the entries of the sets whose gains were computed for the model, in any order
+     * @param evaluated the sets of the tightened entries
+     * @param used the used sets of the model, which are dropped when flattening
+     * @return the bounds with the tightened entries replacing the entries of their sets
+     */
+    GainBounds with(final long[] tightened, final BitSet evaluated, final IntBitmap used) {
+        final long[] kept = new long[m_overlay.length];
+        int numKept = 0;
+        for (final long entry : m_overlay) {
+            if (!evaluated.get(set(entry))) {
+                kept[numKept++] = entry;
+            }
+        }
+        final long[] overlay = merge(kept, numKept, descending(tightened.clone()), tightened.length);
+        if (overlay.length < MIN_FLATTEN || overlay.length < m_shared.length >>> FLATTEN_SHIFT) {
+            return new GainBounds(m_shared, overlay);
+        }
+        final long[] shared = new long[m_shared.length];
+        int numShared = 0;
+        for (final long entry : m_shared) {
+            final int set = set(entry);
+            if (!overrides(set) && !evaluated.get(set) && !used.contains(set)) {
+                shared[numShared++] = entry;
+            }
+        }
+        int numOverlay = 0;
+        for (final long entry : overlay) {
+            if (!used.contains(set(entry))) {
+                overlay[numOverlay++] = entry;
+            }
+        }
+        return new GainBounds(merge(shared, numShared, overlay, numOverlay), NO_ENTRIES);
+    }
+
+    /**
+     * @param gain the bound of the gain of a set
+     * @param set the index of the set
+     * @return the entry of the bound
+     */
+    static long entry(final int gain, final int set) {
+        return (long) gain << 32 | (INDEX_MASK - set);
+    }
+
+    static int gain(final long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    static int set(final long entry) {
+        return (int) (INDEX_MASK - (entry & INDEX_MASK));
+    }
+
+    private boolean overrides(final int set) {
+        return m_overlaySets[slot(set)] != 0;
+    }
+
+    private int slot(final int set) {
+        final int h = (set + 1) * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & m_mask;
+        while (m_overlaySets[slot] != 0 && m_overlaySets[slot] != set + 1) {
+            slot = (slot + 1) & m_mask;
+        }
+        return slot;
+    }
+
+    private static long[] descending(final long[] entries) {
+        Arrays.sort(entries);
+        for (int i = 0, j = entries.length - 1; i < j; i++, j--) {
+            final long entry = entries[i];
+            entries[i] = entries[j];
+            entries[j] = entry;
+        }
+        return entries;
+    }
+
+    private static long[] merge(final long[] a, final int lengthA, final long[] b, final int lengthB) {
+        final long[] out = new long[lengthA + lengthB];
+        int i = 0;
+        int j = 0;
+        for (int n = 0; n < out.length; n++) {
+            out[n] = j == lengthB || i < lengthA && a[i] > b[j] ? a[i++] : b[j++];
+        }
+        return out;
+    }
+
+    /**
+     * Iterates the entries of the bounds, largest first, skipping shared entries replaced by the overlay.
+     */
+    final class Cursor {
+        private int m_shared;
+        private int m_overlay;
+
+        /**
+         * @return true if there are more entries
+         */
+        boolean hasNext() {
+            skipReplaced();
+            return m_shared < GainBounds.this.m_shared.length || m_overlay < GainBounds.this.m_overlay.length;
+        }
+
+        /**
+         * @return the next entry without moving past it, undefined if there is none
+         */
+        long peek() {
+            skipReplaced();
+            final long[] shared = GainBounds.this.m_shared;
+            final long[] overlay = GainBounds.this.m_overlay;
+            if (m_overlay < overlay.length && (m_shared == shared.length || overlay[m_overlay] > shared[m_shared])) {
+                return overlay[m_overlay];
+            }
+            return shared[m_shared];
+        }
+
+        /**
+         * @return the next entry, undefined if there is none
+         */
+        long next() {
+            final long entry = peek();
+            if (m_overlay < GainBounds.this.m_overlay.length && GainBounds.this.m_overlay[m_overlay] == entry) {
+                m_overlay++;
+            } else {
+                m_shared++;
+            }
+            return entry;
+        }
+
+        private void skipReplaced() {
+            final long[] shared = GainBounds.this.m_shared;
+            while (m_shared < shared.length && overrides(set(shared[m_shared]))) {
+                m_shared++;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.unikn.widening.setcover;
+
+/**
+ * The gains of the sets for a model, given as the gains of an ancestor and the decrements of the sets sharing
+ * elements with the sets added since. Each update only stores the decrements of the set its model added and
+ * links to the update of the parent, so creating it only touches these sets and a model whose gains are only
+ * looked up for a few sets does not copy the gains of all sets. Looking up a gain walks the chain, so after
+ * {@link #MAX_DEPTH} updates the model materializes its gains as the base of its children's chains.
+ * The update is not changed once created.
+ */
+final class GainUpdate {
+
+    /** The most updates chained onto one array of gains. */
+    static final int MAX_DEPTH = 8;
+
+    private final int[] m_baseGains;
+    private final GainUpdate m_parent;
+    private final int m_depth;
+
+    // Open addressing table from set index + 1 to the decrement, 0 marks free slots
+    private final int[] m_sets;
+    private final int[] m_decrements;
+    private final int m_mask;
+
+    /**
+     * Creates a new update without decrements.
+     * @param baseGains the gains of an ancestor, which must not be changed
+     * @param parent the update of the parent over the same gains, null if the gains are the parent's
+     * @param maxSets the largest number of sets that are decremented
+     */
+    GainUpdate(final int[] baseGains, final GainUpdate parent, final int maxSets) {
+        m_baseGains = baseGains;
+        m_parent = parent;
+        m_depth = parent == null ? 1 : parent.m_depth + 1;
+        // At most half full, so probe sequences stay short
+        final int size = Integer.highestOneBit(Math.max(maxSets, 1)) << 2;
+        m_sets = new int[size];
+        m_decrements = new int[size];
+        m_mask = size - 1;
+    }
+
+    /**
+     * @return the gains the decrements of the chain apply to
+     */
+    int[] getBaseGains() {
+        return m_baseGains;
+    }
+
+    /**
+     * @return true if no further update should be chained onto this one
+     */
+    boolean isDeep() {
+        return m_depth >= MAX_DEPTH;
+    }
+
+    /**
+     * Decrements the gain of a set by one. Only used while the update is created.
+     * @param set the index of the set
+     */
+    void decrement(final int set) {
+        final int slot = slot(set);
+        m_sets[slot] = set + 1;
+        m_decrements[slot]++;
+    }
+
+    /**
+     * @param set the index of a set
+     * @return the gain of the set for the model
+     */
+    int gain(final int set) {
+        int gain = m_baseGains[set];
+        for (GainUpdate update = this; update != null; update = update.m_parent) {
+            // Free slots have no decrement
+            gain -= update.m_decrements[update.slot(set)];
+        }
+        return gain;
+    }
+
+    /**
+     * @return a new array of the gains of all sets for the model
+     */
+    int[] apply() {
+        final int[] gains = m_baseGains.clone();
+        for (GainUpdate update = this; update != null; update = update.m_parent) {
+            for (int i = 0; i < update.m_sets.length; i++) {
+                if (update.m_sets[i] != 0) {
+                    gains[update.m_sets[i] - 1] -= update.m_decrements[i];
+                }
+            }
+        }
+        return gains;
+    }
+
+    private int slot(final int set) {
+        final int h = (set + 1) * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & m_mask;
+        while (m_sets[slot] != 0 && m_sets[slot] != set + 1) {
+            slot = (slot + 1) & m_mask;
+        }
+        return slot;
+    }
+}
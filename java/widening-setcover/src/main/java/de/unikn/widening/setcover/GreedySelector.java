@@ -2,20 +2,16 @@ package de.unikn.widening.setcover;
 
 import java.util.Collections;
 
-import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.MergeableSelector;
 
-public class GreedySelector implements WideningSelector<Integer, SetCoveringModel, ModelCandidate> {
+public class GreedySelector implements MergeableSelector<Integer, SetCoveringModel, ModelCandidate, GreedySelector.State> {
 
     private ModelCandidate select(final Iterable<ModelCandidate> models) {
-    	ModelCandidate best = null;
+        final State state = createState();
         for (ModelCandidate m : models) {
-            if (best == null
-                    || best.getScore() > m.getScore()
-                    || (!best.isDone() && m.isDone())) {
-                best = m;
-            }
+            accumulate(state, m);
         }
-        return best;
+        return state.m_best;
     }
 
 	@Override
@@ -30,4 +26,39 @@ public class GreedySelector implements WideningSelector<Integer, SetCoveringMode
 		final ModelCandidate best = select(models);
 		return best == null ? Collections.emptySet() : Collections.singleton(best.create());
 	}
+
+    @Override
+    public State createState() {
+        return new State();
+    }
+
+    @Override
+    public void accumulate(final State state, final ModelCandidate m) {
+        final ModelCandidate best = state.m_best;
+        if (best == null
+                || best.getScore() > m.getScore()
+                || (!best.isDone() && m.isDone())) {
+            state.m_best = m;
+        }
+    }
+
+    @Override
+    public State merge(final State left, final State right) {
+        if (right.m_best != null) {
+            accumulate(left, right.m_best);
+        }
+        return left;
+    }
+
+    @Override
+    public Iterable<ModelCandidate> finish(final State state) {
+        return state.m_best == null ? Collections.emptySet() : Collections.singleton(state.m_best);
+    }
+
+    /**
+     * The best candidate seen so far.
+     */
+    public static final class State {
+        private ModelCandidate m_best;
+    }
 }
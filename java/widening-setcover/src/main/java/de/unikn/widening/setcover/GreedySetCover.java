@@ -0,0 +1,152 @@
+package de.unikn.widening.setcover;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import de.unikn.widening.base.collections.IntBitmap;
+import de.unikn.widening.base.execution.Incumbent;
+import de.unikn.widening.base.execution.WideningBudget;
+
+/**
+ * The greedy set cover, which repeatedly adds the set covering the most uncovered elements. The sets are kept
+ * in buckets by their current gain, doubly linked lists in arrays indexed by the gain. Covering an element only
+ * moves the sets containing it one bucket down, found through the element index of the instance, and the
+ * largest non-empty bucket never grows. So the whole cover is computed in time linear in the size of the input,
+ * instead of rescanning all sets for every added set like a widening with k = 1. The chosen sets are added
+ * to the model at the end, so the covered elements of the model are copied only once.
+ * <p>
+ * The greedy cover is a fast baseline and an upper bound for a widening run. Seeded into an {@link #incumbent}
+ * it is returned unless the run finds a smaller cover, and {@link #budgetToBeat} stops the run once it cannot.
+ */
+public final class GreedySetCover {
+
+    private GreedySetCover() {
+    }
+
+    /**
+     * Completes a model greedily. Of sets with equal gains any may be added.
+     * @param start the model to complete
+     * @return the start model with the greedily chosen sets added, not done if the sets cannot cover the universe
+     */
+    public static SetCoveringModel solve(final SetCoveringModel start) {
+        final SetCoverInstance instance = start.getInstance();
+        final int numSets = instance.getNumSets();
+        final int[] gains = start.gains().clone();
+
+        int maxGain = 0;
+        for (final int gain : gains) {
+            maxGain = Math.max(maxGain, gain);
+        }
+        final int[] starts = instance.elementStarts();
+        final int[] containing = instance.elementSets();
+        final int[] heads = new int[maxGain + 1];
+        final int[] next = new int[numSets];
+        final int[] prev = new int[numSets];
+        for (int g = 0; g <= maxGain; g++) {
+            heads[g] = -1;
+        }
+        // Backwards, so initially the lowest set indices come first in their buckets
+        for (int s = numSets - 1; s >= 0; s--) {
+            if (gains[s] > 0) {
+                link(heads, next, prev, s, gains[s]);
+            }
+        }
+
+        final boolean[] covered = new boolean[instance.getUniverseSize()];
+        final BitSet startCovered = start.getCovered();
+        for (int e = startCovered.nextSetBit(0); e >= 0 && e < covered.length; e = startCovered.nextSetBit(e + 1)) {
+            covered[e] = true;
+        }
+
+        int[] chosen = new int[16];
+        int numChosen = 0;
+        while (maxGain > 0) {
+            final int best = heads[maxGain];
+            if (best < 0) {
+                maxGain--;
+                continue;
+            }
+            unlink(heads, next, prev, best, maxGain);
+            gains[best] = 0;
+            if (numChosen == chosen.length) {
+                chosen = Arrays.copyOf(chosen, 2 * numChosen);
+            }
+            chosen[numChosen++] = best;
+
+            final IntBitmap set = instance.getSetBitmap(best);
+            for (int e = set.nextSetBit(0); e >= 0; e = set.nextSetBit(e + 1)) {
+                if (covered[e]) {
+                    continue;
+                }
+                covered[e] = true;
+                for (int i = starts[e]; i < starts[e + 1]; i++) {
+                    final int s = containing[i];
+                    if (gains[s] > 0) {
+                        unlink(heads, next, prev, s, gains[s]);
+                        if (--gains[s] > 0) {
+                            link(heads, next, prev, s, gains[s]);
+                        }
+                    }
+                }
+            }
+        }
+        return start.refineAll(Arrays.copyOf(chosen, numChosen));
+    }
+
+    /**
+     * Creates an incumbent for a widening run, seeded with the greedy cover of the start model. All covers have
+     * the score 0, so the incumbent keeps the cover with the fewest sets instead.
+     * @param start the model the run starts with
+     * @return the incumbent, holding the greedy cover if the sets cover the universe
+     */
+    public static Incumbent<Integer, SetCoveringModel> incumbent(final SetCoveringModel start) {
+        final Incumbent<Integer, SetCoveringModel> incumbent =
+                new Incumbent<>(Comparator.comparingInt(SetCoveringModel::getNumSets));
+        incumbent.offer(solve(start));
+        return incumbent;
+    }
+
+    /**
+     * Limits a budget to the levels in which a widening run from a model can still find a smaller cover than
+     * an incumbent. Every level of a set-cover widening adds one set, so a run that has not finished after one
+     * level less than the incumbent has additional sets cannot beat it. Such a run returns the incumbent.
+     * @param budget the budget of the run
+     * @param start the model the run starts with
+     * @param incumbent a complete model, usually from {@link #solve}
+     * @return the budget with the number of levels limited accordingly
+     */
+    public static WideningBudget budgetToBeat(final WideningBudget budget, final SetCoveringModel start,
+            final SetCoveringModel incumbent) {
+        final int levels = Math.max(0, incumbent.getNumSets() - start.getNumSets() - 1);
+        final WideningBudget.WideningBudgetBuilder builder = WideningBudget.builder()
+                .maxLevels(Math.min(budget.getMaxLevels(), levels));
+        if (budget.hasTimeLimit()) {
+            builder.timeLimit(budget.getTimeLimit(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+        }
+        return builder.build();
+    }
+
+    private static void link(final int[] heads, final int[] next, final int[] prev, final int set, final int gain) {
+        final int head = heads[gain];
+        next[set] = head;
+        prev[set] = -1;
+        if (head >= 0) {
+            prev[head] = set;
+        }
+        heads[gain] = set;
+    }
+
+    private static void unlink(final int[] heads, final int[] next, final int[] prev, final int set,
+            final int gain) {
+        if (prev[set] >= 0) {
+            next[prev[set]] = next[set];
+        } else {
+            heads[gain] = next[set];
+        }
+        if (next[set] >= 0) {
+            prev[next[set]] = prev[set];
+        }
+    }
+}
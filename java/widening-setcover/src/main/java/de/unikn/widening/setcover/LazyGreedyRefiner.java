@@ -0,0 +1,82 @@
+package de.unikn.widening.setcover;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import de.unikn.widening.base.WideningRefiner;
+import de.unikn.widening.base.collections.IntBitmap;
+import de.unikn.widening.base.collections.LongHeap;
+
+/**
+ * Refiner creating only the k candidates with the largest gains, using lazy greedy evaluation.
+ * The gain of a set can only shrink as the cover grows, so the gains computed for a model are upper bounds
+ * for its children. The refiner keeps these bounds in {@link GainBounds} that children inherit from their parent,
+ * sharing the bounds of all sets and copying only those tightened since they were last flattened.
+ * It only computes the gain of the set with the largest bound, and a set whose gain was just computed
+ * and is still the largest bound is among the best. Usually only a small fraction of the sets is evaluated.
+ * <p>
+ * Combined with a {@link TopKSelector} or {@link GreedySelector} selecting at most k candidates, the local
+ * selections are the same as when refining all sets, except for the order of sets with equal gains.
+ */
+public class LazyGreedyRefiner implements WideningRefiner<Integer, SetCoveringModel, ModelCandidate> {
+
+    private final int m_k;
+
+    /**
+     * Creates a new refiner.
+     * @param k the number of candidates to create per model
+     */
+    public LazyGreedyRefiner(final int k) {
+        m_k = k;
+    }
+
+    @Override
+    public Iterable<ModelCandidate> refine(final SetCoveringModel model) {
+        final GainBounds inherited = model.getGainBounds();
+        final GainBounds bounds = inherited == null ? GainBounds.initial(model.getInstance()) : inherited;
+        final GainBounds.Cursor cursor = bounds.cursor();
+        final IntBitmap used = model.getUsedSetBitmap();
+        final int score = model.getScore();
+
+        // The exact gains computed for this model, largest first
+        final LongHeap exact = new LongHeap(2 * m_k);
+        final BitSet evaluated = new BitSet();
+        long[] tightened = new long[2 * m_k];
+        int numTightened = 0;
+
+        final List<ModelCandidate> out = new ArrayList<>(m_k);
+        while (out.size() < m_k) {
+            while (cursor.hasNext() && (used.contains(GainBounds.set(cursor.peek()))
+                    || evaluated.get(GainBounds.set(cursor.peek())))) {
+                // Used sets stay used in all descendants, evaluated sets are in the exact gains
+                cursor.next();
+            }
+            final boolean fromBounds = cursor.hasNext() && (exact.isEmpty() || cursor.peek() > exact.peek());
+            if (!fromBounds && exact.isEmpty()) {
+                break;
+            }
+            final long top = fromBounds ? cursor.next() : exact.pop();
+            if (GainBounds.gain(top) == 0) {
+                // No set adds anything anymore
+                break;
+            }
+            final int set = GainBounds.set(top);
+            if (fromBounds) {
+                evaluated.set(set);
+                final long entry = GainBounds.entry(score - model.scoreWith(set), set);
+                exact.push(entry);
+                if (numTightened == tightened.length) {
+                    tightened = Arrays.copyOf(tightened, 2 * numTightened);
+                }
+                tightened[numTightened++] = entry;
+            } else {
+                // No other set can gain more than this one
+                out.add(new ModelCandidate(model, set, score - GainBounds.gain(top)));
+            }
+        }
+        model.setGainBounds(bounds.with(Arrays.copyOf(tightened, numTightened), evaluated, used));
+        return out;
+    }
+}
@@ -0,0 +1,41 @@
+package de.unikn.widening.setcover;
+
+import java.util.function.BiFunction;
+
+/**
+ * Bucket assigner for the {@link BucketSelector} that puts candidates covering similar elements into the same
+ * bucket, using locality-sensitive hashing. A bucket is the hash of one band of the MinHash signature of the
+ * elements a candidate covers. Two candidates whose covers have the Jaccard similarity J share the band with
+ * probability J^rows, so near-duplicate covers compete for one bucket while different ones spread out.
+ * Only one band is used, as every candidate goes into a single bucket.
+ * <p>
+ * The signature of a candidate is combined from the signature of its parent, computed once per model, and
+ * the signature of the added set, so assigning a bucket takes time proportional to the rows only.
+ */
+public class LshBucketAssigner implements BiFunction<ModelCandidate, Integer, Integer> {
+
+    private final int m_rows;
+
+    /**
+     * Creates a new assigner.
+     * @param rows the number of signature values hashed per bucket. With more rows only more similar
+     *          candidates collide.
+     */
+    public LshBucketAssigner(final int rows) {
+        m_rows = rows;
+    }
+
+    @Override
+    public Integer apply(final ModelCandidate candidate, final Integer k) {
+        final SetCoveringModel parent = candidate.getParent();
+        final MinHash minHash = parent.getInstance().getMinHash(m_rows);
+        final int[] covered = parent.getSignature(minHash);
+        final int set = candidate.getAddedSetIndex();
+        long hash = 0;
+        for (int i = 0; i < m_rows; i++) {
+            hash = (hash + Math.min(covered[i], minHash.get(set, i))) * 0x9E3779B97F4A7C15L;
+        }
+        hash ^= hash >>> 32;
+        return Math.floorMod((int) hash, k);
+    }
+}
@@ -0,0 +1,135 @@
+package de.unikn.widening.setcover;
+
+import java.util.SplittableRandom;
+
+import de.unikn.widening.base.collections.IntBitmap;
+
+/**
+ * MinHash signatures of the sets of an instance. Position i of the signature of a set of elements is the
+ * smallest value of the i-th hash function over the elements. The fraction of positions in which two
+ * signatures agree estimates the Jaccard similarity of their sets, with a standard error of about
+ * 1 / sqrt(length). The signature of a union is the element-wise minimum of the signatures of its parts,
+ * so the signature of a cover is combined from the signatures of its sets without touching any element.
+ * Signatures are created by {@link SetCoverInstance#getMinHash(int)} once per instance and length.
+ */
+public final class MinHash {
+
+    private final int m_length;
+    // The signature of set i is at positions i * m_length to (i + 1) * m_length - 1
+    private final int[] m_signatures;
+
+    MinHash(final SetCoverInstance instance, final int length, final long seed) {
+        m_length = length;
+        final long[] multipliers = new long[length];
+        final SplittableRandom rng = new SplittableRandom(seed);
+        for (int i = 0; i < length; i++) {
+            multipliers[i] = rng.nextLong() | 1;
+        }
+        m_signatures = new int[instance.getNumSets() * length];
+        for (int s = 0; s < instance.getNumSets(); s++) {
+            final int offset = s * length;
+            for (int i = 0; i < length; i++) {
+                m_signatures[offset + i] = Integer.MAX_VALUE;
+            }
+            final IntBitmap set = instance.getSetBitmap(s);
+            for (int e = set.nextSetBit(0); e >= 0; e = set.nextSetBit(e + 1)) {
+                for (int i = 0; i < length; i++) {
+                    final int h = hash(e, multipliers[i]);
+                    if (h < m_signatures[offset + i]) {
+                        m_signatures[offset + i] = h;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of hash functions, the length of every signature
+     */
+    public int getLength() {
+        return m_length;
+    }
+
+    /**
+     * @param set the index of a set
+     * @param position a position in the signature
+     * @return the value of the signature of the set at the position
+     */
+    public int get(final int set, final int position) {
+        return m_signatures[set * m_length + position];
+    }
+
+    /**
+     * @return the signature of the empty set
+     */
+    public int[] empty() {
+        final int[] signature = new int[m_length];
+        for (int i = 0; i < m_length; i++) {
+            signature[i] = Integer.MAX_VALUE;
+        }
+        return signature;
+    }
+
+    /**
+     * @param set the index of a set
+     * @return a new signature of the set
+     */
+    public int[] signature(final int set) {
+        final int[] signature = new int[m_length];
+        System.arraycopy(m_signatures, set * m_length, signature, 0, m_length);
+        return signature;
+    }
+
+    /**
+     * @param signature the signature of a set of elements
+     * @param set the index of a set
+     * @return a new signature of the union of both
+     */
+    public int[] union(final int[] signature, final int set) {
+        final int[] union = signature.clone();
+        final int offset = set * m_length;
+        for (int i = 0; i < m_length; i++) {
+            union[i] = Math.min(union[i], m_signatures[offset + i]);
+        }
+        return union;
+    }
+
+    /**
+     * @param model a model
+     * @return a new signature of the elements covered by the model
+     */
+    public int[] signature(final SetCoveringModel model) {
+        int[] signature = empty();
+        final IntBitmap used = model.getUsedSetBitmap();
+        for (int s = used.nextSetBit(0); s >= 0; s = used.nextSetBit(s + 1)) {
+            final int offset = s * m_length;
+            for (int i = 0; i < m_length; i++) {
+                signature[i] = Math.min(signature[i], m_signatures[offset + i]);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @param a the signature of a set of elements
+     * @param b the signature of another set of elements
+     * @return the estimated Jaccard similarity of the sets, between 0 and 1
+     */
+    public static double similarity(final int[] a, final int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return a.length == 0 ? 0 : (double) equal / a.length;
+    }
+
+    private static int hash(final int element, final long multiplier) {
+        long h = (element + 1) * multiplier;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        // Non-negative, so the empty set's Integer.MAX_VALUE is never smaller
+        return (int) (h >>> 33);
+    }
+}
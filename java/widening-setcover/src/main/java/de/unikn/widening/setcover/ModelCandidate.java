@@ -4,33 +4,22 @@ import java.util.BitSet;
 import java.util.zip.CRC32;
 
 import de.unikn.widening.base.Candidate;
+import de.unikn.widening.base.collections.IntBitmap;
 
 public class ModelCandidate implements Candidate<Integer, SetCoveringModel> {
 
 	private final SetCoveringModel parent;
 	private final int add;
 	private final int score;
-	private BitSet[] sets;
-	private int m_universeSize;
-
-    private static HashMethod method = HashMethod.SCRAMBLED;
 
     public int leastSet() {
-        int p = parent.getUsedSets().nextSetBit(0);
-        return (p == -1) ? add : Math.min(p, add);
+        return parent.leastSetWith(add);
     }
 
-	public ModelCandidate(final SetCoveringModel parent, final BitSet[] sets, final int universeSize, final int add, final int score) {
+	public ModelCandidate(final SetCoveringModel parent, final int add, final int score) {
 		this.parent = parent;
 		this.add = add;
 		this.score = score;
-		this.sets = sets;
-		m_universeSize = universeSize;
-	}
-
-	private static final int scramble(final int h) {
-	    final int h2 = h ^ (h >>> 20) ^ (h >>> 12);
-	    return h2 ^ (h2 >>> 7) ^ (h2 >>> 4);
 	}
 
 	@Override
@@ -38,6 +27,13 @@ public class ModelCandidate implements Candidate<Integer, SetCoveringModel> {
 		return this.score;
 	}
 
+	/**
+	 * @return the score without boxing it
+	 */
+	public int getScoreValue() {
+		return this.score;
+	}
+
 	@Override
 	public SetCoveringModel create() {
 		return this.parent.refine(this.add);
@@ -48,30 +44,25 @@ public class ModelCandidate implements Candidate<Integer, SetCoveringModel> {
 		return this.score == 0;
 	}
 
-	private static enum HashMethod {
-		CRC32,
-		JAVA,
-		SCRAMBLED
-	}
-
 	@Override
 	public String toString() {
 	    return "Model Candidate " + getScore();
 	}
 
+	/**
+	 * @return the hash of the state of the candidate, computed as set by {@link SetCoverInstance#getHashMethod()}
+	 */
 	public long hash() {
-		switch (method) {
+		switch (parent.getInstance().getHashMethod()) {
 		case CRC32:
-			final BitSet used = (BitSet) parent.getUsedSets().clone();
+			final BitSet used = parent.getUsedSets();
 			used.set(add);
 			final CRC32 hash = new CRC32();
 			hash.update(used.toByteArray());
 			return hash.getValue();
-		case JAVA:
-		    return parent.hashCode() ^ (1 << (add % 32));
-		case SCRAMBLED:
+		case ZOBRIST:
 		default:
-		    return scramble(parent.hashCode() ^ (1 << (add % 32)));
+		    return parent.hashWith(add);
 		}
 	}
 
@@ -85,11 +76,13 @@ public class ModelCandidate implements Candidate<Integer, SetCoveringModel> {
 
     public double jaccard(final Candidate<Integer, SetCoveringModel> candidate) {
         ModelCandidate c = (ModelCandidate)candidate;
-        CombinedBitSet b1 = new CombinedBitSet(sets[getAddedSetIndex()], parent.getCovered());
-        CombinedBitSet b2 = new CombinedBitSet(sets[c.getAddedSetIndex()], c.getParent().getCovered());
+        final SetCoverInstance instance = parent.getInstance();
+        CombinedBitSet b1 = new CombinedBitSet(instance.getSetBitmap(getAddedSetIndex()), parent.getCovered());
+        CombinedBitSet b2 = new CombinedBitSet(instance.getSetBitmap(c.getAddedSetIndex()),
+                c.getParent().getCovered());
 
         int count = 0;
-        int total = m_universeSize - getScore();
+        int total = instance.getUniverseSize() - getScore();
 
         for (int i = b2.nextSetBit(0); i >= 0; i = b2.nextSetBit(i + 1)) {
             if (b1.get(i)) {
@@ -107,14 +100,15 @@ public class ModelCandidate implements Candidate<Integer, SetCoveringModel> {
 
     public double simpleJaccard(final Candidate<Integer, SetCoveringModel> candidate) {
         ModelCandidate c = (ModelCandidate)candidate;
-        BitSet b1 = sets[getAddedSetIndex()];
-        BitSet b2 = sets[c.getAddedSetIndex()];
+        final SetCoverInstance instance = parent.getInstance();
+        IntBitmap b1 = instance.getSetBitmap(getAddedSetIndex());
+        IntBitmap b2 = instance.getSetBitmap(c.getAddedSetIndex());
 
         int count = 0;
-        int total = m_universeSize - getScore();
+        int total = instance.getUniverseSize() - getScore();
 
         for (int i = b2.nextSetBit(0); i >= 0; i = b2.nextSetBit(i + 1)) {
-            if (b1.get(i)) {
+            if (b1.contains(i)) {
                 count++;
             } else {
                 total++;
@@ -128,14 +122,15 @@ public class ModelCandidate implements Candidate<Integer, SetCoveringModel> {
     }
 
     private class CombinedBitSet {
-        private BitSet m_b1, m_b2;
-        public CombinedBitSet(final BitSet b1, final BitSet b2) {
+        private IntBitmap m_b1;
+        private BitSet m_b2;
+        public CombinedBitSet(final IntBitmap b1, final BitSet b2) {
             m_b1 = b1;
             m_b2 = b2;
         }
 
         public boolean get(final int index) {
-            return m_b1.get(index) || m_b2.get(index);
+            return m_b1.contains(index) || m_b2.get(index);
         }
 
         public int nextSetBit(final int from) {
@@ -0,0 +1,186 @@
+package de.unikn.widening.setcover;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.unikn.widening.base.collections.BoundedLongKeyHeap;
+
+/**
+ * The k best candidates of a level in parallel primitive arrays instead of {@link ModelCandidate} objects.
+ * A candidate is the index of its parent in the frontier, the added set, its score and the lowest index of
+ * its used sets. Candidates are ordered like in the {@link TopKSelector}: by score, then by least set, and
+ * of candidates equal in both only the first is kept.
+ * <p>
+ * The slots of the kept candidates are ordered by a {@link BoundedLongKeyHeap} keyed by score and least set,
+ * so a candidate worse than the k-th is rejected by one comparison and the worst candidate is replaced in
+ * logarithmic time. The keys of the kept candidates are also in a small hash table, which finds candidates
+ * equal to a kept one without scanning all slots.
+ */
+final class PackedCandidates {
+
+    private final int[] m_parents;
+    private final int[] m_sets;
+    private final int[] m_scores;
+    private final int[] m_leastSets;
+    // The slot numbers, boxed once so the heap does not allocate while offering
+    private final Integer[] m_slotIds;
+    private final BoundedLongKeyHeap<Integer> m_heap;
+    // Open addressing set of the keys in the heap, 0 marks free entries since finished candidates are not kept
+    private final long[] m_keys;
+    private final int m_mask;
+    // True once a finished candidate was offered, it is in slot 0 then
+    private boolean m_done;
+
+    /**
+     * @param k the number of candidates to keep
+     */
+    PackedCandidates(final int k) {
+        m_parents = new int[Math.max(k, 1)];
+        m_sets = new int[m_parents.length];
+        m_scores = new int[m_parents.length];
+        m_leastSets = new int[m_parents.length];
+        m_slotIds = new Integer[k];
+        for (int i = 0; i < k; i++) {
+            m_slotIds[i] = i;
+        }
+        m_heap = new BoundedLongKeyHeap<>(k);
+        // At most half full, so probe sequences stay short
+        m_keys = new long[Integer.highestOneBit(Math.max(k, 1)) << 2];
+        m_mask = m_keys.length - 1;
+    }
+
+    /**
+     * Offers a candidate, ignored once a finished candidate was offered.
+     * @param parent the index of the parent in the frontier
+     * @param set the added set
+     * @param score the score of the candidate
+     * @param leastSet the lowest index of the used sets of the candidate
+     */
+    void offer(final int parent, final int set, final int score, final int leastSet) {
+        if (m_done) {
+            return;
+        }
+        if (score == 0) {
+            // A finished candidate replaces all others, like in the selector
+            clear();
+            m_done = true;
+            put(0, parent, set, score, leastSet);
+            return;
+        }
+        // Only a better score replaces the worst candidate
+        if (m_heap.isFull() && (m_heap.size() == 0 || (int) (m_heap.peekKey() >>> 32) <= score)) {
+            return;
+        }
+        final long key = (long) score << 32 | leastSet;
+        if (!addKey(key)) {
+            return;
+        }
+        final int slot;
+        if (m_heap.isFull()) {
+            slot = m_heap.elementAt(0);
+            removeKey(m_heap.peekKey());
+        } else {
+            slot = m_heap.size();
+        }
+        put(slot, parent, set, score, leastSet);
+        m_heap.add(key, m_slotIds[slot]);
+    }
+
+    /**
+     * @return true if a finished candidate was offered, the only one kept then
+     */
+    boolean isDone() {
+        return m_done;
+    }
+
+    /**
+     * @return the number of kept candidates
+     */
+    int size() {
+        return m_done ? 1 : m_heap.size();
+    }
+
+    int getParent(final int slot) {
+        return m_parents[slot];
+    }
+
+    int getSet(final int slot) {
+        return m_sets[slot];
+    }
+
+    int getScore(final int slot) {
+        return m_scores[slot];
+    }
+
+    int getLeastSet(final int slot) {
+        return m_leastSets[slot];
+    }
+
+    /**
+     * @return the slots of the kept candidates, best first
+     */
+    int[] sortedSlots() {
+        if (m_done) {
+            return new int[] {0};
+        }
+        final List<Integer> sorted = m_heap.toSortedList();
+        final int[] slots = new int[sorted.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = sorted.get(i);
+        }
+        return slots;
+    }
+
+    /**
+     * Removes all candidates.
+     */
+    void clear() {
+        m_heap.clear();
+        Arrays.fill(m_keys, 0L);
+        m_done = false;
+    }
+
+    private void put(final int slot, final int parent, final int set, final int score, final int leastSet) {
+        m_parents[slot] = parent;
+        m_sets[slot] = set;
+        m_scores[slot] = score;
+        m_leastSets[slot] = leastSet;
+    }
+
+    /**
+     * @param key the key of a candidate
+     * @return true if the key was added, false if a candidate with the key is kept already
+     */
+    private boolean addKey(final long key) {
+        int i = home(key);
+        while (m_keys[i] != 0) {
+            if (m_keys[i] == key) {
+                return false;
+            }
+            i = (i + 1) & m_mask;
+        }
+        m_keys[i] = key;
+        return true;
+    }
+
+    private void removeKey(final long key) {
+        int free = home(key);
+        while (m_keys[free] != key) {
+            free = (free + 1) & m_mask;
+        }
+        // Moves later keys of the probe sequence into the gap, so lookups need no tombstones
+        for (int i = (free + 1) & m_mask; m_keys[i] != 0; i = (i + 1) & m_mask) {
+            final int home = home(m_keys[i]);
+            if (((i - home) & m_mask) >= ((i - free) & m_mask)) {
+                m_keys[free] = m_keys[i];
+                free = i;
+            }
+        }
+        m_keys[free] = 0;
+    }
+
+    private int home(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & m_mask;
+    }
+}
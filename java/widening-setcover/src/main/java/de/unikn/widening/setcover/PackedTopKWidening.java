@@ -0,0 +1,239 @@
+package de.unikn.widening.setcover;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import de.unikn.widening.base.execution.Incumbent;
+import de.unikn.widening.base.execution.WideningBudget;
+import de.unikn.widening.base.execution.WideningContext;
+import de.unikn.widening.base.execution.WideningListener;
+
+/**
+ * Top-k widening for set cover without candidate objects. It selects the same models as a
+ * {@link de.unikn.widening.base.execution.WideningCalculator} with a {@link SetCoverRefiner} and a
+ * {@link TopKSelector}, but keeps the candidates of a level in {@link PackedCandidates} and primitive
+ * arrays, so refining a model allocates nothing per unused set. Scores are read from the gains of the parent
+ * and the least set of a candidate from the parent's first used set. Models are only created for the
+ * k selected candidates.
+ * <p>
+ * Like the calculators it runs within a budget, updates an incumbent and reports to a listener, and with
+ * an executor the models of a level are refined in parallel. It needs no transposition table: candidates
+ * of a level reaching the same state have the same score and least set, so only the first of them is kept,
+ * and states of different levels differ in their number of sets. The calculators still create a
+ * {@link ModelCandidate} per unused set, since their selectors keep candidate objects.
+ */
+public class PackedTopKWidening {
+
+    private final int m_k;
+    private final ExecutorService m_exec;
+    private WideningListener<Integer> m_listener;
+
+    /**
+     * Creates a new widening refining the models of a level one after another.
+     * @param k the number of models to continue with per level
+     */
+    public PackedTopKWidening(final int k) {
+        this(k, null);
+    }
+
+    /**
+     * Creates a new widening.
+     * @param k the number of models to continue with per level
+     * @param exec the executor refining the models of a level in parallel, null to refine them in the calling
+     *          thread
+     */
+    public PackedTopKWidening(final int k, final ExecutorService exec) {
+        m_k = k;
+        m_exec = exec;
+    }
+
+    /**
+     * @param listener the listener to report measurements of the levels to, null to not measure
+     */
+    public void setListener(final WideningListener<Integer> listener) {
+        m_listener = listener;
+    }
+
+    public Optional<SetCoveringModel> run(final SetCoveringModel start) throws Exception {
+        return run(start, WideningBudget.unlimited());
+    }
+
+    /**
+     * Runs the widening until a model is done, no set adds anything or the budget runs out.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     * @throws Exception when a refinement task fails
+     */
+    public Optional<SetCoveringModel> run(final SetCoveringModel start, final WideningBudget budget)
+            throws Exception {
+        return run(start, budget, new Incumbent<>());
+    }
+
+    /**
+     * Runs the widening until a model is done, no set adds anything or the budget runs out.
+     * Refinement tasks still running when the budget runs out are cancelled.
+     * @param start the model to start with
+     * @param budget the budget of the run
+     * @param incumbent the best complete model found so far, updated during the run
+     * @return the best complete model or, if the budget ran out before any model was done,
+     *          the best model of the last level
+     * @throws Exception when a refinement task fails
+     */
+    public Optional<SetCoveringModel> run(final SetCoveringModel start, final WideningBudget budget,
+            final Incumbent<Integer, SetCoveringModel> incumbent) throws Exception {
+        final long startTime = System.nanoTime();
+        if (start.isDone()) {
+            incumbent.offer(start);
+            return incumbent.get();
+        }
+        List<SetCoveringModel> frontier = new ArrayList<>();
+        frontier.add(start);
+        final PackedCandidates local = new PackedCandidates(m_k);
+        final List<Future<?>> tasks = new ArrayList<>();
+        int level = 0;
+        try {
+            for (; !frontier.isEmpty(); level++) {
+                if (budget.isExhausted(level, startTime)) {
+                    return incumbent.orBestOf(frontier);
+                }
+                if (m_listener != null) {
+                    m_listener.levelStarted(level, frontier.size());
+                }
+                // The local selections of all models, best first, k slots per model
+                final int[] sets = new int[frontier.size() * m_k];
+                final int[] scores = new int[sets.length];
+                final int[] leastSets = new int[sets.length];
+                final int[] sizes = new int[frontier.size()];
+                final boolean[] done = new boolean[frontier.size()];
+                if (m_exec == null) {
+                    for (int p = 0; p < frontier.size() && (p == 0 || !done[p - 1]); p++) {
+                        if (budget.isTimeUp(startTime)) {
+                            return incumbent.orBestOf(frontier);
+                        }
+                        refine(level, frontier, p, local, System.nanoTime(), sets, scores, leastSets, sizes, done);
+                    }
+                } else {
+                    try {
+                        refineAll(level, frontier, sets, scores, leastSets, sizes, done, tasks, budget, startTime);
+                    } catch (final TimeoutException e) {
+                        return incumbent.orBestOf(frontier);
+                    }
+                }
+
+                // Take turns between the local selections, like the global selection of the calculators.
+                // Only the first finished candidate is selected, so later models are ignored then.
+                final long selectStart = System.nanoTime();
+                final PackedCandidates global = new PackedCandidates(m_k);
+                int rounds = 0;
+                long kept = 0;
+                for (int p = 0; p < sizes.length && (p == 0 || !done[p - 1]); p++) {
+                    rounds = Math.max(rounds, sizes[p]);
+                    kept += sizes[p];
+                }
+                for (int r = 0; r < rounds && !global.isDone(); r++) {
+                    for (int p = 0; p < sizes.length && !global.isDone() && (p == 0 || !done[p - 1]); p++) {
+                        if (r < sizes[p]) {
+                            final int i = p * m_k + r;
+                            global.offer(p, sets[i], scores[i], leastSets[i]);
+                        }
+                    }
+                }
+
+                final List<SetCoveringModel> next = new ArrayList<>(global.size());
+                for (final int slot : global.sortedSlots()) {
+                    next.add(frontier.get(global.getParent(slot)).refine(global.getSet(slot)));
+                }
+                if (m_listener != null) {
+                    m_listener.selected(level, kept, 0, System.nanoTime() - selectStart, next.size(),
+                            next.isEmpty() ? null : next.get(0).getScore());
+                }
+                if (global.isDone()) {
+                    incumbent.offer(next.get(0));
+                    return incumbent.get();
+                }
+                frontier = next;
+                tasks.clear();
+            }
+            return incumbent.get();
+        } finally {
+            // Do not leave refinements of an abandoned level running in the pool
+            for (final Future<?> task : tasks) {
+                task.cancel(true);
+            }
+            if (m_listener != null) {
+                m_listener.runFinished(level, System.nanoTime() - startTime);
+            }
+        }
+    }
+
+    private void refineAll(final int level, final List<SetCoveringModel> frontier, final int[] sets,
+            final int[] scores, final int[] leastSets, final int[] sizes, final boolean[] done,
+            final List<Future<?>> tasks, final WideningBudget budget, final long startTime) throws Exception {
+        // Workers report in the context of this run
+        final WideningContext context = WideningContext.current();
+        for (int p = 0; p < frontier.size(); p++) {
+            final int parent = p;
+            final long submitted = System.nanoTime();
+            // Every task writes its own slots only
+            tasks.add(m_exec.submit(() -> {
+                final WideningContext previous = WideningContext.set(context);
+                try {
+                    refine(level, frontier, parent, new PackedCandidates(m_k), submitted, sets, scores, leastSets,
+                            sizes, done);
+                } finally {
+                    WideningContext.set(previous);
+                }
+            }));
+        }
+        // Waiting for all tasks also makes their slots visible to this thread
+        for (final Future<?> task : tasks) {
+            task.get(budget.remaining(startTime), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Refines a model of the frontier and writes its local selection to its slots.
+     */
+    private void refine(final int level, final List<SetCoveringModel> frontier, final int parent,
+            final PackedCandidates local, final long submitted, final int[] sets, final int[] scores,
+            final int[] leastSets, final int[] sizes, final boolean[] done) {
+        final long start = System.nanoTime();
+        final int candidates = refine(frontier.get(parent), local);
+        int i = parent * m_k;
+        for (final int slot : local.sortedSlots()) {
+            sets[i] = local.getSet(slot);
+            scores[i] = local.getScore(slot);
+            leastSets[i++] = local.getLeastSet(slot);
+        }
+        sizes[parent] = local.size();
+        done[parent] = local.isDone();
+        if (m_listener != null) {
+            m_listener.refined(level, candidates, System.nanoTime() - start, start - submitted);
+        }
+    }
+
+    /**
+     * @return the number of candidates offered
+     */
+    private static int refine(final SetCoveringModel model, final PackedCandidates local) {
+        local.clear();
+        final int[] gains = model.gains();
+        final int uncovered = model.getScore();
+        final int sets = model.getTotalSets();
+        final int first = model.getFirstUsedSet();
+        int candidates = 0;
+        for (int s = model.getUsedSetBitmap().nextClearBit(0); s < sets && !local.isDone();
+                s = model.getUsedSetBitmap().nextClearBit(s + 1)) {
+            local.offer(0, s, uncovered - gains[s], first < 0 ? s : Math.min(first, s));
+            candidates++;
+        }
+        return candidates;
+    }
+}
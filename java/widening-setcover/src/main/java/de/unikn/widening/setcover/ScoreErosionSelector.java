@@ -3,74 +3,140 @@ package de.unikn.widening.setcover;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import de.unikn.widening.base.Candidate;
 import de.unikn.widening.base.WideningSelector;
 
+/**
+ * Selects candidates one after another, each time the one with the best eroded score. After every pick the
+ * erosion factors of all candidates are updated by their distance to the picked one.
+ * <p>
+ * An erosion factor lies between 0 and 1 and shrinks the closer a candidate is to the picked candidates.
+ * Scores count the uncovered elements, so lower is better, and the eroded score is the score divided by the
+ * factor. Candidates similar to the picked ones thus look worse, which diversifies the selection.
+ * A candidate equal to a picked one has a factor of 0 and is only picked when no other candidate is left.
+ * <p>
+ * The candidates are copied into arrays once per selection. With many candidates the erosion factors are
+ * updated and the next best is found in parallel chunks. Distances are either computed exactly from the
+ * elements or estimated from {@link MinHash} signatures of the covered elements.
+ */
 public class ScoreErosionSelector implements WideningSelector<Integer, SetCoveringModel, ModelCandidate> {
 
+    // Below this many candidates per chunk the selection runs on the calling thread
+    private static final int CHUNK_SIZE = 4096;
+
     private int m_k;
     private double m_beta;
+    private int m_signatureLength;
 
     public ScoreErosionSelector(final int k, final double beta) {
+        this(k, beta, 0);
+    }
+
+    /**
+     * Creates a new selector.
+     * @param k the number of candidates to select
+     * @param beta how far the erosion of a pick reaches
+     * @param signatureLength the length of the MinHash signatures estimating distances, 0 to compute them exactly
+     */
+    public ScoreErosionSelector(final int k, final double beta, final int signatureLength) {
         m_k = k;
         m_beta = beta;
+        m_signatureLength = signatureLength;
     }
 
     public Iterable<ModelCandidate> select(
             final Iterable<ModelCandidate> models) {
 
-        int count = 0;
-        int bestIdx = 0;
-
-        Iterator<ModelCandidate> iter = models.iterator();
-        if (!iter.hasNext()) {
+        final List<ModelCandidate> list = new ArrayList<>();
+        for (final ModelCandidate c : models) {
+            list.add(c);
+        }
+        if (list.isEmpty()) {
             return Collections.emptyList();
         }
+        final ModelCandidate[] candidates = list.toArray(new ModelCandidate[list.size()]);
+        final int n = candidates.length;
+        final int[] scores = new int[n];
         // Find the best model to start with
-        ModelCandidate best = iter.next();
-        while(iter.hasNext()) {
-            ModelCandidate c = iter.next();
-            if (best.getScore() > c.getScore()) {
-                best = c;
-                bestIdx = count;
+        int bestIdx = 0;
+        for (int j = 0; j < n; j++) {
+            scores[j] = candidates[j].getScore();
+            if (scores[bestIdx] > scores[j]) {
+                bestIdx = j;
             }
-            count++;
         }
 
+        final int[][] signatures = m_signatureLength > 0 ? signatures(candidates) : null;
         // No erosion at the beginning
-        double[] erosion = new double[count + 1];
+        final double[] erosion = new double[n];
         Arrays.fill(erosion, 1.0);
+        final boolean[] taken = new boolean[n];
+        final int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
 
         List<ModelCandidate> selected = new ArrayList<>();
 
         // Select m_k models
-        for (int i = 0; i < m_k; i++) {
-            selected.add(best);
-            // Selected model becomes infinitely bad so it is not chosen again
-            erosion[bestIdx] = Double.POSITIVE_INFINITY;
-            ModelCandidate newBest = best;
-            int j = 0;
-            // Find next best model and adjust erosion factors
-            for(ModelCandidate c : models) {
-                // Update erosion based on distance to last selected model
-                // e = e * (1 - exp(1 - d(best, c) / beta))
-                erosion[j] *= (1 - Math.exp((best.jaccard(c) - 1) / m_beta));
-                // Check if this is a better model
-                if (c.getScore() * erosion[j] < newBest.getScore() * erosion[bestIdx]) {
-                    newBest = c;
-                    bestIdx = j;
-                }
-                j++;
-            }
-            best = newBest;
+        while (bestIdx >= 0 && selected.size() < m_k) {
+            selected.add(candidates[bestIdx]);
+            // Selected model is not chosen again
+            taken[bestIdx] = true;
+            final int last = bestIdx;
+            // Find next best model and adjust erosion factors, chunk by chunk
+            final IntStream range = IntStream.range(0, chunks);
+            bestIdx = (chunks > 1 ? range.parallel() : range)
+                    .map(chunk -> erode(candidates, signatures, scores, erosion, taken, last, chunk))
+                    .reduce(-1, (a, b) -> better(scores, erosion, a, b));
         }
 
         return selected;
     }
 
+    private int erode(final ModelCandidate[] candidates, final int[][] signatures, final int[] scores,
+            final double[] erosion, final boolean[] taken, final int last, final int chunk) {
+        final int to = Math.min(candidates.length, (chunk + 1) * CHUNK_SIZE);
+        int best = -1;
+        for (int j = chunk * CHUNK_SIZE; j < to; j++) {
+            if (taken[j]) {
+                continue;
+            }
+            // Update erosion based on distance to last selected model
+            // e = e * (1 - exp(-d(last, c) / beta))
+            final double similarity = signatures != null ? MinHash.similarity(signatures[last], signatures[j])
+                    : candidates[last].jaccard(candidates[j]);
+            erosion[j] *= (1 - Math.exp((similarity - 1) / m_beta));
+            best = better(scores, erosion, best, j);
+        }
+        return best;
+    }
+
+    /**
+     * @return the candidate with the lower eroded score, the one with the lower index if both are equal
+     */
+    private static int better(final int[] scores, final double[] erosion, final int a, final int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        // Compares scores[b] / erosion[b] with scores[a] / erosion[a] without dividing by a factor of 0
+        final double ea = scores[a] * erosion[b];
+        final double eb = scores[b] * erosion[a];
+        return eb < ea || (eb == ea && b < a) ? b : a;
+    }
+
+    private int[][] signatures(final ModelCandidate[] candidates) {
+        final MinHash minHash = candidates[0].getParent().getInstance().getMinHash(m_signatureLength);
+        final int[][] signatures = new int[candidates.length][];
+        final IntStream range = IntStream.range(0, candidates.length);
+        (candidates.length > CHUNK_SIZE ? range.parallel() : range).forEach(j -> signatures[j] =
+                minHash.union(candidates[j].getParent().getSignature(minHash), candidates[j].getAddedSetIndex()));
+        return signatures;
+    }
+
     @Override
     public Iterable<ModelCandidate> selectLocal(
             final Iterable<ModelCandidate> models) {
@@ -0,0 +1,360 @@
+package de.unikn.widening.setcover;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.unikn.widening.base.collections.IntBitmap;
+import de.unikn.widening.base.collections.IntBitmapFactory;
+
+/**
+ * A set cover problem shared by all models solving it: the sets, the size of the universe and
+ * one random 64 bit key per set. The hash of a model is the XOR of the keys of its used sets,
+ * so it can be updated when adding a set and does not depend on the order the sets were added in.
+ * The sets are kept as {@link IntBitmap}s only, so gains can be computed without creating bit sets,
+ * and an index from every element to the sets containing it, so gains can be updated when elements get covered.
+ * The bitmap implementation is also used for the used sets of the models, so compressed bitmaps keep both
+ * instances with many sparse sets and the frontier of many models small. By default persistent bitmaps
+ * are used, so children share all but one chunk of their used sets with their parent.
+ * The instance also decides how the candidates of its models are hashed, so runs on different instances
+ * can hash differently at the same time.
+ */
+public class SetCoverInstance {
+
+    /**
+     * The ways to compute {@link ModelCandidate#hash()}.
+     */
+    public enum HashMethod {
+        /** XOR of the keys of the used sets, computed from the parent's hash without copying anything. */
+        ZOBRIST,
+        /** CRC32 of the used sets, computed from a copy of the parent's used sets. */
+        CRC32
+    }
+
+    private static final long DEFAULT_SEED = 0x5DEECE66DL;
+
+    private final int m_universeSize;
+    private final long[] m_keys;
+    private final IntBitmapFactory m_bitmaps;
+    private final IntBitmap[] m_setBitmaps;
+    // Sets containing element e are m_elementSets[m_elementStarts[e]] to m_elementSets[m_elementStarts[e + 1] - 1]
+    private final int[] m_elementStarts;
+    private final int[] m_elementSets;
+    private final long m_seed;
+    private final HashMethod m_hashMethod;
+    // MinHash signatures by their length, created when first needed
+    private final ConcurrentMap<Integer, MinHash> m_minHashes = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance with keys drawn from a fixed seed.
+     * @param sets the sets to choose from
+     * @param universeSize the number of elements to cover
+     */
+    public SetCoverInstance(final BitSet[] sets, final int universeSize) {
+        this(sets, universeSize, DEFAULT_SEED);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param sets the sets to choose from
+     * @param universeSize the number of elements to cover
+     * @param seed the seed for the keys of the sets
+     */
+    public SetCoverInstance(final BitSet[] sets, final int universeSize, final long seed) {
+        this(sets, universeSize, seed, IntBitmapFactory.PERSISTENT);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param sets the sets to choose from
+     * @param universeSize the number of elements to cover
+     * @param seed the seed for the keys of the sets
+     * @param bitmaps creates the bitmaps of the sets and of the used sets of models
+     */
+    public SetCoverInstance(final BitSet[] sets, final int universeSize, final long seed,
+            final IntBitmapFactory bitmaps) {
+        this(sets, universeSize, seed, bitmaps, HashMethod.ZOBRIST);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param sets the sets to choose from
+     * @param universeSize the number of elements to cover
+     * @param seed the seed for the keys of the sets
+     * @param bitmaps creates the bitmaps of the sets and of the used sets of models
+     * @param hashMethod how the candidates of the models are hashed
+     */
+    public SetCoverInstance(final BitSet[] sets, final int universeSize, final long seed,
+            final IntBitmapFactory bitmaps, final HashMethod hashMethod) {
+        m_universeSize = universeSize;
+        m_hashMethod = hashMethod;
+        m_keys = new long[sets.length];
+        m_bitmaps = bitmaps;
+        m_seed = seed;
+        m_setBitmaps = new IntBitmap[sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            m_setBitmaps[i] = bitmaps.of(sets[i]);
+        }
+        int elements = universeSize;
+        for (final BitSet set : sets) {
+            elements = Math.max(elements, set.length());
+        }
+        m_elementStarts = new int[elements + 1];
+        for (final BitSet set : sets) {
+            for (int e = set.nextSetBit(0); e >= 0; e = set.nextSetBit(e + 1)) {
+                m_elementStarts[e + 1]++;
+            }
+        }
+        for (int e = 0; e < elements; e++) {
+            m_elementStarts[e + 1] += m_elementStarts[e];
+        }
+        m_elementSets = new int[m_elementStarts[elements]];
+        final int[] next = Arrays.copyOf(m_elementStarts, elements);
+        for (int i = 0; i < sets.length; i++) {
+            for (int e = sets[i].nextSetBit(0); e >= 0; e = sets[i].nextSetBit(e + 1)) {
+                m_elementSets[next[e]++] = i;
+            }
+        }
+        final SplittableRandom rng = new SplittableRandom(seed);
+        for (int i = 0; i < m_keys.length; i++) {
+            m_keys[i] = rng.nextLong();
+        }
+    }
+
+    /**
+     * @param index the index of a set
+     * @return a new bit set of the elements of the set, use {@link #getSetBitmap(int)} to avoid the copy
+     */
+    public BitSet getSet(final int index) {
+        return m_setBitmaps[index].toBitSet();
+    }
+
+    /**
+     * @return how the candidates of the models are hashed
+     */
+    public HashMethod getHashMethod() {
+        return m_hashMethod;
+    }
+
+    /**
+     * @return the factory of the bitmaps of this instance
+     */
+    public IntBitmapFactory getBitmapFactory() {
+        return m_bitmaps;
+    }
+
+    /**
+     * @param index the index of a set
+     * @return the number of elements of the set
+     */
+    public int getSetSize(final int index) {
+        return m_setBitmaps[index].cardinality();
+    }
+
+    /**
+     * @param index the index of a set
+     * @return the set as a bitmap
+     */
+    public IntBitmap getSetBitmap(final int index) {
+        return m_setBitmaps[index];
+    }
+
+    /**
+     * Returns the MinHash signatures of the sets, computing them on the first call for a length.
+     * @param length the number of hash functions, more estimate similarities more accurately
+     * @return the signatures
+     */
+    public MinHash getMinHash(final int length) {
+        return m_minHashes.computeIfAbsent(length, l -> new MinHash(this, l, m_seed));
+    }
+
+    /**
+     * @return the number of sets
+     */
+    public int getNumSets() {
+        return m_setBitmaps.length;
+    }
+
+    /**
+     * @return the number of elements to cover
+     */
+    public int getUniverseSize() {
+        return m_universeSize;
+    }
+
+    /**
+     * @param index the index of a set
+     * @return the key of the set, XOR-ed into the hash of models using it
+     */
+    public long getKey(final int index) {
+        return m_keys[index];
+    }
+
+    /**
+     * Counts the elements of a set that are not covered yet, without allocating anything.
+     * @param index the index of a set
+     * @param covered the words of the covered elements, as returned by {@link BitSet#toLongArray()}
+     * @return the number of elements the set would add to the cover
+     */
+    public int gain(final int index, final long[] covered) {
+        return m_setBitmaps[index].andNotCardinality(covered);
+    }
+
+    /**
+     * Adds the elements of a set to a cover.
+     * @param index the index of a set
+     * @param covered the words of the covered elements, as returned by {@link BitSet#toLongArray()}
+     * @return new words of the covered elements and the elements of the set
+     */
+    public long[] coveredWith(final int index, final long[] covered) {
+        final IntBitmap set = m_setBitmaps[index];
+        long[] words = covered.clone();
+        for (int e = set.nextSetBit(0); e >= 0; e = set.nextSetBit(e + 1)) {
+            if (e >>> 6 >= words.length) {
+                words = Arrays.copyOf(words, (e >>> 6) + 1);
+            }
+            words[e >>> 6] |= 1L << e;
+        }
+        return words;
+    }
+
+    /**
+     * @param element an element
+     * @return the number of sets containing the element
+     */
+    public int getNumSetsContaining(final int element) {
+        return element + 1 < m_elementStarts.length ? m_elementStarts[element + 1] - m_elementStarts[element] : 0;
+    }
+
+    /**
+     * Computes the gains of all sets for a cover.
+     * @param covered the words of the covered elements, as returned by {@link BitSet#toLongArray()}
+     * @return the gain of every set
+     */
+    public int[] gains(final long[] covered) {
+        final int[] gains = new int[m_setBitmaps.length];
+        for (int i = 0; i < gains.length; i++) {
+            gains[i] = gain(i, covered);
+        }
+        return gains;
+    }
+
+    /**
+     * Updates the gains of all sets for newly covered elements. Only the sets containing the elements
+     * are touched.
+     * @param gains the gains of the sets before covering the elements, updated in place
+     * @param elements the newly covered elements
+     */
+    public void cover(final int[] gains, final int[] elements) {
+        for (final int e : elements) {
+            for (int i = m_elementStarts[e]; i < m_elementStarts[e + 1]; i++) {
+                gains[m_elementSets[i]]--;
+            }
+        }
+    }
+
+    /**
+     * Creates the gains of all sets after covering new elements, without copying the gains before.
+     * Only the sets containing the elements are touched.
+     * @param gains the gains of the sets before covering the elements, which must not be changed
+     * @param elements the newly covered elements
+     * @return the gains after covering the elements
+     */
+    GainUpdate gainUpdate(final int[] gains, final int[] elements) {
+        return gainUpdate(gains, null, elements);
+    }
+
+    /**
+     * Creates the gains of all sets after covering new elements as an update chained onto the update of the
+     * gains before. Only the sets containing the elements are touched.
+     * @param gains the gains of the sets before covering the elements
+     * @param elements the newly covered elements
+     * @return the gains after covering the elements
+     */
+    GainUpdate gainUpdate(final GainUpdate gains, final int[] elements) {
+        return gainUpdate(gains.getBaseGains(), gains, elements);
+    }
+
+    private GainUpdate gainUpdate(final int[] baseGains, final GainUpdate parent, final int[] elements) {
+        int touched = 0;
+        for (final int e : elements) {
+            touched += m_elementStarts[e + 1] - m_elementStarts[e];
+        }
+        final GainUpdate update = new GainUpdate(baseGains, parent, touched);
+        for (final int e : elements) {
+            for (int i = m_elementStarts[e]; i < m_elementStarts[e + 1]; i++) {
+                update.decrement(m_elementSets[i]);
+            }
+        }
+        return update;
+    }
+
+    /**
+     * Lists the elements of a set that are not covered yet.
+     * @param index the index of a set
+     * @param covered the words of the covered elements, as returned by {@link BitSet#toLongArray()}
+     * @return the elements the set would add to the cover
+     */
+    public int[] uncovered(final int index, final long[] covered) {
+        final int[] out = new int[gain(index, covered)];
+        final IntBitmap set = m_setBitmaps[index];
+        int n = 0;
+        for (int e = set.nextSetBit(0); e >= 0; e = set.nextSetBit(e + 1)) {
+            final int w = e >>> 6;
+            if (w >= covered.length || (covered[w] & (1L << e)) == 0) {
+                out[n++] = e;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return the start of the sets containing each element in {@link #elementSets()}, one more entry than elements
+     */
+    int[] elementStarts() {
+        return m_elementStarts;
+    }
+
+    /**
+     * @return the sets containing each element, element by element, not copied so it must not be changed
+     */
+    int[] elementSets() {
+        return m_elementSets;
+    }
+
+    /**
+     * @param element an element
+     * @return the indices of the sets containing the element, in ascending order
+     */
+    public int[] getSetsContaining(final int element) {
+        if (element + 1 >= m_elementStarts.length) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(m_elementSets, m_elementStarts[element], m_elementStarts[element + 1]);
+    }
+
+    /**
+     * Finds the uncovered element contained in the fewest sets. Every cover has to contain one of these
+     * sets, so branching on them alone still reaches every cover.
+     * @param covered the words of the covered elements, as returned by {@link BitSet#toLongArray()}
+     * @return the element, or -1 if all elements contained in any set are covered
+     */
+    public int rarestUncovered(final long[] covered) {
+        int rarest = -1;
+        int fewest = Integer.MAX_VALUE;
+        for (int e = 0; e + 1 < m_elementStarts.length; e++) {
+            final int w = e / Long.SIZE;
+            if (w < covered.length && (covered[w] & (1L << e)) != 0) {
+                continue;
+            }
+            final int n = m_elementStarts[e + 1] - m_elementStarts[e];
+            if (n > 0 && n < fewest) {
+                rarest = e;
+                fewest = n;
+            }
+        }
+        return rarest;
+    }
+}
@@ -0,0 +1,268 @@
+package de.unikn.widening.setcover;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Shrinks a set cover problem before widening it, using the standard reductions for unit costs:
+ * <ul>
+ * <li>An element contained in only one set forces that set into every cover. Forced sets are removed
+ * together with the elements they cover.</li>
+ * <li>A set contained in another set is dominated, since the other set can always replace it.</li>
+ * <li>An element whose sets all contain another element dominates that element, since covering it
+ * covers the other element as well.</li>
+ * </ul>
+ * The reductions are repeated until none applies. Dominance is checked for all sets and elements in
+ * parallel. Of equal sets or elements only the one with the lowest index is kept. Given the size of the
+ * universe, elements not contained in any set are rejected, since no cover exists.
+ * <p>
+ * The remaining sets are renumbered, and so are the remaining elements, starting at zero. A cover of the
+ * reduced problem is mapped back to the original sets with {@link #toOriginal(BitSet)}, which also adds
+ * the forced sets.
+ */
+public final class SetCoverReduction {
+
+    private final BitSet[] m_sets;
+    private final int m_universeSize;
+    private final int[] m_originalIndices;
+    private final BitSet m_forced;
+
+    private SetCoverReduction(final BitSet[] sets, final int universeSize, final int[] originalIndices,
+            final BitSet forced) {
+        m_sets = sets;
+        m_universeSize = universeSize;
+        m_originalIndices = originalIndices;
+        m_forced = forced;
+    }
+
+    /**
+     * Reduces a set cover problem. The given sets are not changed.
+     * @param sets the sets to choose from
+     * @param universeSize the number of elements to cover
+     * @return the reduction
+     * @throws IllegalArgumentException if an element is not contained in any set
+     */
+    public static SetCoverReduction reduce(final BitSet[] sets, final int universeSize) {
+        final BitSet uncoverable = new BitSet(universeSize);
+        uncoverable.set(0, universeSize);
+        for (final BitSet set : sets) {
+            uncoverable.andNot(set);
+        }
+        if (!uncoverable.isEmpty()) {
+            throw new IllegalArgumentException("Elements not contained in any set: " + uncoverable);
+        }
+        return reduce(sets);
+    }
+
+    /**
+     * Reduces a set cover problem whose universe consists of the elements contained in the sets.
+     * The given sets are not changed.
+     * @param sets the sets to choose from
+     * @return the reduction
+     */
+    public static SetCoverReduction reduce(final BitSet[] sets) {
+        final BitSet[] cols = new BitSet[sets.length];
+        final BitSet live = new BitSet();
+        for (int i = 0; i < sets.length; i++) {
+            cols[i] = (BitSet) sets[i].clone();
+            live.or(sets[i]);
+        }
+        final BitSet forced = new BitSet(sets.length);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            final int[][] rows = rows(cols, live);
+
+            for (int e = live.nextSetBit(0); e >= 0; e = live.nextSetBit(e + 1)) {
+                if (rows[e].length == 1 && cols[rows[e][0]] != null) {
+                    final int set = rows[e][0];
+                    forced.set(set);
+                    live.andNot(cols[set]);
+                    cols[set] = null;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                restrict(cols, live);
+                continue;
+            }
+
+            final int[] dominatedSets = IntStream.range(0, cols.length).parallel()
+                    .filter(i -> isDominatedSet(cols, rows, i)).toArray();
+            final int[] dominatedElements = live.stream().parallel()
+                    .filter(e -> isDominatedElement(rows, live, e)).toArray();
+            for (final int i : dominatedSets) {
+                cols[i] = null;
+            }
+            for (final int e : dominatedElements) {
+                live.clear(e);
+            }
+            restrict(cols, live);
+            changed = dominatedSets.length > 0 || dominatedElements.length > 0;
+        }
+
+        // Renumber the remaining elements and sets
+        final int[] elementIndex = new int[Math.max(live.length(), 1)];
+        int universeSize = 0;
+        for (int e = live.nextSetBit(0); e >= 0; e = live.nextSetBit(e + 1)) {
+            elementIndex[e] = universeSize++;
+        }
+        final List<BitSet> reduced = new ArrayList<>();
+        final List<Integer> originals = new ArrayList<>();
+        for (int i = 0; i < cols.length; i++) {
+            if (cols[i] != null) {
+                final BitSet set = new BitSet(universeSize);
+                for (int e = cols[i].nextSetBit(0); e >= 0; e = cols[i].nextSetBit(e + 1)) {
+                    set.set(elementIndex[e]);
+                }
+                reduced.add(set);
+                originals.add(i);
+            }
+        }
+        final int[] originalIndices = new int[originals.size()];
+        for (int i = 0; i < originalIndices.length; i++) {
+            originalIndices[i] = originals.get(i);
+        }
+        return new SetCoverReduction(reduced.toArray(new BitSet[reduced.size()]), universeSize,
+                originalIndices, forced);
+    }
+
+    /**
+     * @return a new array of the remaining sets, renumbered. The sets must not be changed.
+     */
+    public BitSet[] getSets() {
+        return m_sets.clone();
+    }
+
+    /**
+     * @return the number of remaining elements
+     */
+    public int getUniverseSize() {
+        return m_universeSize;
+    }
+
+    /**
+     * @return the original indices of the sets that are part of every cover
+     */
+    public BitSet getForcedSets() {
+        return (BitSet) m_forced.clone();
+    }
+
+    /**
+     * @param set the index of a remaining set
+     * @return the index of the set in the original problem
+     */
+    public int getOriginalIndex(final int set) {
+        return m_originalIndices[set];
+    }
+
+    /**
+     * Maps a cover of the reduced problem to a cover of the original problem.
+     * @param usedSets the indices of the remaining sets in the cover
+     * @return the original indices of these sets and the forced sets
+     */
+    public BitSet toOriginal(final BitSet usedSets) {
+        final BitSet original = getForcedSets();
+        for (int i = usedSets.nextSetBit(0); i >= 0; i = usedSets.nextSetBit(i + 1)) {
+            original.set(m_originalIndices[i]);
+        }
+        return original;
+    }
+
+    private static int[][] rows(final BitSet[] cols, final BitSet live) {
+        final int[] counts = new int[live.length()];
+        for (final BitSet col : cols) {
+            if (col != null) {
+                for (int e = col.nextSetBit(0); e >= 0; e = col.nextSetBit(e + 1)) {
+                    counts[e]++;
+                }
+            }
+        }
+        final int[][] rows = new int[counts.length][];
+        for (int e = 0; e < rows.length; e++) {
+            rows[e] = new int[counts[e]];
+            counts[e] = 0;
+        }
+        // Filled in ascending order of the sets, so the rows are sorted
+        for (int i = 0; i < cols.length; i++) {
+            if (cols[i] != null) {
+                for (int e = cols[i].nextSetBit(0); e >= 0; e = cols[i].nextSetBit(e + 1)) {
+                    rows[e][counts[e]++] = i;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void restrict(final BitSet[] cols, final BitSet live) {
+        for (int i = 0; i < cols.length; i++) {
+            if (cols[i] != null) {
+                cols[i].and(live);
+                if (cols[i].isEmpty()) {
+                    cols[i] = null;
+                }
+            }
+        }
+    }
+
+    private static boolean isDominatedSet(final BitSet[] cols, final int[][] rows, final int i) {
+        final BitSet col = cols[i];
+        if (col == null) {
+            return false;
+        }
+        // Any superset contains the rarest element of the set
+        int rarest = -1;
+        for (int e = col.nextSetBit(0); e >= 0; e = col.nextSetBit(e + 1)) {
+            if (rarest < 0 || rows[e].length < rows[rarest].length) {
+                rarest = e;
+            }
+        }
+        final int size = col.cardinality();
+        for (final int j : rows[rarest]) {
+            if (j != i && containsAll(cols[j], col)) {
+                final int other = cols[j].cardinality();
+                if (other > size || j < i) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDominatedElement(final int[][] rows, final BitSet live, final int e) {
+        final int[] row = rows[e];
+        for (int f = live.nextSetBit(0); f >= 0; f = live.nextSetBit(f + 1)) {
+            if (f != e && rows[f].length <= row.length && isSubset(rows[f], row)
+                    && (rows[f].length < row.length || f < e)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAll(final BitSet outer, final BitSet inner) {
+        for (int e = inner.nextSetBit(0); e >= 0; e = inner.nextSetBit(e + 1)) {
+            if (!outer.get(e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSubset(final int[] inner, final int[] outer) {
+        int j = 0;
+        for (final int i : inner) {
+            while (j < outer.length && outer[j] < i) {
+                j++;
+            }
+            if (j == outer.length || outer[j] != i) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+}
@@ -1,36 +1,90 @@
 package de.unikn.widening.setcover;
 
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import de.unikn.widening.base.WideningModel;
+import de.unikn.widening.base.collections.IntBitmap;
 
 public class SetCoveringModel implements WideningModel<Integer>, Iterable<ModelCandidate> {
 
-	private int m_universeSize;
+	private final SetCoverInstance m_instance;
 
-	private BitSet m_usedSets;
+	// Created by the bitmap factory of the instance, shares unchanged parts with the parent's
+	private final IntBitmap m_usedSets;
 
-	private BitSet[] m_sets;
+	// The words and number of covered elements, read for the gain of every candidate. They span the universe
+	// only, so they are copied for every child, which is cheaper than reading them through a shared structure.
+	private final long[] m_coveredWords;
 
-	private BitSet m_covered;
+	private final int m_coveredCount;
 
-	private final int m_hash;
+	private final long m_hash;
 
-    private SetCoveringModel(final BitSet usedSets, final BitSet covered, final BitSet[] sets, final int universeSize,
-    		final int hash) {
+	// The lowest index of the used sets, -1 if there are none
+	private final int m_firstUsedSet;
+
+	// The covered elements as a bit set, created when first needed
+	private volatile BitSet m_covered;
+
+	// The gain of every set, kept by models without a gain update and by those ending a chain of updates
+	private volatile int[] m_gains;
+
+	// The parent's gains updated for the elements the last set added, if the parent's gains were known.
+	// Dropped once the gains are kept, readers then find them in m_gains.
+	private volatile GainUpdate m_gainUpdate;
+
+	// The unused sets containing the uncovered element in the fewest sets, computed when first needed
+	private volatile int[] m_branchingSets;
+
+	// The MinHash signature of the covered elements, computed when first needed
+	private volatile CoverSignature m_signature;
+
+	// Upper bounds of the gains of the sets, inherited from the parent until a lazy refinement tightens them
+	private volatile GainBounds m_gainBounds;
+
+    private SetCoveringModel(final SetCoverInstance instance, final IntBitmap usedSets, final long[] coveredWords,
+    		final int coveredCount, final long hash, final int firstUsedSet, final GainBounds gainBounds,
+    		final GainUpdate gainUpdate) {
+        m_instance = instance;
+        m_gainUpdate = gainUpdate;
+        m_firstUsedSet = firstUsedSet;
+        m_gainBounds = gainBounds;
         m_usedSets = usedSets;
-        m_sets = sets;
-        m_covered = covered;
-        m_universeSize = universeSize;
+        m_coveredWords = coveredWords;
+        m_coveredCount = coveredCount;
         m_hash = hash;
     }
 
+    public SetCoverInstance getInstance() {
+        return m_instance;
+    }
+
+    /**
+     * @return the covered elements, which must not be changed
+     */
     public BitSet getCovered() {
-        return m_covered;
+        BitSet covered = m_covered;
+        if (covered == null) {
+            covered = BitSet.valueOf(m_coveredWords);
+            m_covered = covered;
+        }
+        return covered;
     }
 
+    /**
+     * @return a new bit set of the used sets
+     */
     public BitSet getUsedSets() {
+        return m_usedSets.toBitSet();
+    }
+
+    /**
+     * @return the used sets, without copying them
+     */
+    public IntBitmap getUsedSetBitmap() {
         return m_usedSets;
     }
 
@@ -40,32 +94,202 @@ public class SetCoveringModel implements WideningModel<Integer>, Iterable<ModelC
 
     @Override
     public Integer getScore() {
-        return m_universeSize - m_covered.cardinality();
+        return m_instance.getUniverseSize() - m_coveredCount;
     }
 
     @Override
     public boolean isDone() {
-        return m_covered.cardinality() == m_universeSize;
+        return m_coveredCount == m_instance.getUniverseSize();
     }
 
     public static SetCoveringModel empty(final BitSet[] sets, final int universeSize) {
-        final BitSet used = new BitSet(sets.length);
-        final BitSet covered = new BitSet(universeSize);
-        return new SetCoveringModel(used, covered, sets, universeSize, 0);
+        return empty(new SetCoverInstance(sets, universeSize));
+    }
+
+    public static SetCoveringModel empty(final SetCoverInstance instance) {
+        return new SetCoveringModel(instance, instance.getBitmapFactory().empty(), new long[0], 0, 0, -1, null,
+                null);
     }
 
     public SetCoveringModel refine(final int usedSet) {
-        final BitSet newUsedSets = (BitSet) m_usedSets.clone();
-        newUsedSets.set(usedSet);
-        final BitSet newCovered = (BitSet) m_covered.clone();
-        newCovered.or(m_sets[usedSet]);
-        return new SetCoveringModel(newUsedSets, newCovered, m_sets, m_universeSize,
-        		m_hash ^ (1 << (usedSet % 32)));
+        final long[] newCovered = m_instance.coveredWith(usedSet, m_coveredWords);
+        final int newCoveredCount = m_coveredCount + m_instance.gain(usedSet, m_coveredWords);
+        final GainUpdate gainUpdate = childGainUpdate(usedSet);
+        // Gains only shrink as the cover grows, so bounds of this model hold for its children
+        return new SetCoveringModel(m_instance, m_usedSets.with(usedSet), newCovered, newCoveredCount,
+                hashWith(usedSet), leastSetWith(usedSet), m_gainBounds, gainUpdate);
+    }
+
+    /**
+     * Lets a child update the gains for the few sets sharing an element with the added one, if the gains of this
+     * model are known. The update is chained onto the update of this model, unless the chain is long enough
+     * to materialize the gains of this model as the base of the chains of its children.
+     * @param usedSet the set the child adds
+     * @return the gain update of the child, null if the gains of this model are not known
+     */
+    private GainUpdate childGainUpdate(final int usedSet) {
+        int[] gains = m_gains;
+        final GainUpdate gainUpdate = m_gainUpdate;
+        if (gains == null && gainUpdate != null) {
+            if (!gainUpdate.isDeep()) {
+                return m_instance.gainUpdate(gainUpdate, m_instance.uncovered(usedSet, m_coveredWords));
+            }
+            gains = gains();
+        } else if (gains == null) {
+            // A concurrent call may have dropped the update after keeping the gains
+            gains = m_gains;
+        }
+        return gains == null ? null : m_instance.gainUpdate(gains, m_instance.uncovered(usedSet, m_coveredWords));
+    }
+
+    /**
+     * Adds several sets at once. The covered elements are copied once instead of once per set, so this takes
+     * time linear in the size of the added sets and the universe.
+     * @param sets the indices of unused sets, each at most once
+     * @return the model with the sets added
+     */
+    SetCoveringModel refineAll(final int[] sets) {
+        long[] covered = Arrays.copyOf(m_coveredWords,
+                Math.max(m_coveredWords.length, (m_instance.getUniverseSize() + 63) >>> 6));
+        final BitSet used = m_usedSets.toBitSet();
+        long hash = m_hash;
+        int first = m_firstUsedSet;
+        for (final int set : sets) {
+            final IntBitmap elements = m_instance.getSetBitmap(set);
+            for (int e = elements.nextSetBit(0); e >= 0; e = elements.nextSetBit(e + 1)) {
+                if (e >>> 6 >= covered.length) {
+                    covered = Arrays.copyOf(covered, (e >>> 6) + 1);
+                }
+                covered[e >>> 6] |= 1L << e;
+            }
+            used.set(set);
+            hash ^= m_instance.getKey(set);
+            first = first < 0 ? set : Math.min(first, set);
+        }
+        int coveredCount = 0;
+        for (final long word : covered) {
+            coveredCount += Long.bitCount(word);
+        }
+        return new SetCoveringModel(m_instance, m_instance.getBitmapFactory().of(used), covered, coveredCount,
+                hash, first, m_gainBounds, null);
+    }
+
+    /**
+     * @return the lowest index of the used sets, -1 if no set is used
+     */
+    public int getFirstUsedSet() {
+        return m_firstUsedSet;
+    }
+
+    /**
+     * @param set the index of an unused set
+     * @return the lowest index of the used sets after adding the set
+     */
+    public int leastSetWith(final int set) {
+        return m_firstUsedSet < 0 ? set : Math.min(m_firstUsedSet, set);
+    }
+
+    /**
+     * @return the gain bounds for the {@link LazyGreedyRefiner}, null if there are none yet
+     */
+    GainBounds getGainBounds() {
+        return m_gainBounds;
+    }
+
+    void setGainBounds(final GainBounds gainBounds) {
+        m_gainBounds = gainBounds;
+    }
+
+    /**
+     * @return the 64 bit hash of the used sets, the XOR of their keys in the instance
+     */
+    public long hash() {
+        return m_hash;
+    }
+
+    /**
+     * @param set the index of an unused set
+     * @return the hash of the model after adding the set
+     */
+    public long hashWith(final int set) {
+        return m_hash ^ m_instance.getKey(set);
+    }
+
+    /**
+     * Computes the score of the model after adding a set without creating the model or any bit set.
+     * @param set the index of an unused set
+     * @return the number of elements left uncovered after adding the set
+     */
+    public int scoreWith(final int set) {
+        final int[] gains = m_gains;
+        final int gain;
+        if (gains != null) {
+            gain = gains[set];
+        } else {
+            final GainUpdate gainUpdate = m_gainUpdate;
+            gain = gainUpdate != null ? gainUpdate.gain(set) : m_instance.gain(set, m_coveredWords);
+        }
+        return m_instance.getUniverseSize() - m_coveredCount - gain;
+    }
+
+    /**
+     * Returns the gain of every set, the number of uncovered elements it contains. If the parent's gains were
+     * known they are updated, otherwise computed. Models whose gains are a short chain of updates return a new
+     * array on every call without keeping it, so the frontier does not hold an array of all sets per model.
+     * The other models compute their gains once and keep them.
+     * @return the gains, which must not be changed
+     */
+    public int[] gains() {
+        int[] gains = m_gains;
+        if (gains == null) {
+            // Read once, a concurrent call may drop it after publishing the gains
+            final GainUpdate gainUpdate = m_gainUpdate;
+            if (gainUpdate != null && !gainUpdate.isDeep()) {
+                return gainUpdate.apply();
+            }
+            gains = gainUpdate != null ? gainUpdate.apply() : m_gains;
+            if (gains == null) {
+                gains = m_instance.gains(m_coveredWords);
+            }
+            m_gains = gains;
+            m_gainUpdate = null;
+        }
+        return gains;
+    }
+
+    /**
+     * Returns the sets containing the uncovered element that is contained in the fewest sets.
+     * Every cover extending this model contains one of them.
+     * @return the sets, none of which is used, empty if no set adds anything
+     */
+    public int[] getBranchingSets() {
+        int[] sets = m_branchingSets;
+        if (sets == null) {
+            final int element = m_instance.rarestUncovered(m_coveredWords);
+            sets = element < 0 ? new int[0] : m_instance.getSetsContaining(element);
+            m_branchingSets = sets;
+        }
+        return sets;
+    }
+
+    /**
+     * Returns the MinHash signature of the covered elements. It is computed once and kept for the most
+     * recently requested signatures.
+     * @param minHash the signatures of the sets of the instance
+     * @return the signature, which must not be changed
+     */
+    public int[] getSignature(final MinHash minHash) {
+        CoverSignature signature = m_signature;
+        if (signature == null || signature.m_minHash != minHash) {
+            signature = new CoverSignature(minHash, minHash.signature(this));
+            m_signature = signature;
+        }
+        return signature.m_values;
     }
 
     @Override
     public int hashCode() {
-        return m_hash;
+        return (int) (m_hash ^ (m_hash >>> 32));
     }
 
     @Override
@@ -78,25 +302,93 @@ public class SetCoveringModel implements WideningModel<Integer>, Iterable<ModelC
 
     @Override
     public Iterator<ModelCandidate> iterator() {
-        return new Iterator<ModelCandidate>() {
-            private int m_nextIdx = m_usedSets.nextClearBit(0);
+        return new CandidateIterator(0, m_instance.getNumSets());
+    }
+
+    /**
+     * Creates the candidates that add one of the unused sets with an index in the given range.
+     * @param from the first set index, inclusive
+     * @param to the last set index, exclusive
+     * @return the candidates for the sets in the range
+     */
+    public Iterable<ModelCandidate> candidates(final int from, final int to) {
+        return () -> new CandidateIterator(from, Math.min(to, m_instance.getNumSets()));
+    }
+
+    /**
+     * Creates the candidates that add one of the given sets.
+     * @param sets the indices of unused sets
+     * @param from the first position in <code>sets</code>, inclusive
+     * @param to the last position in <code>sets</code>, exclusive
+     * @return the candidates for the sets in the range
+     */
+    public Iterable<ModelCandidate> candidates(final int[] sets, final int from, final int to) {
+        return () -> new Iterator<ModelCandidate>() {
+            private int m_next = from;
 
             @Override
             public boolean hasNext() {
-                return m_nextIdx < m_sets.length;
+                return m_next < to;
             }
 
             @Override
             public ModelCandidate next() {
-                final int usedSet = m_nextIdx;
-				final BitSet newCovered = (BitSet) m_covered.clone();
-				newCovered.or(m_sets[usedSet]);
-				ModelCandidate model =
-						new ModelCandidate(SetCoveringModel.this, m_sets, m_universeSize, usedSet,
-								SetCoveringModel.this.m_universeSize - newCovered.cardinality());
-                m_nextIdx = m_usedSets.nextClearBit(m_nextIdx + 1);
-                return model;
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final int set = sets[m_next++];
+                return new ModelCandidate(SetCoveringModel.this, set, scoreWith(set));
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the total number of sets in the instance, used or not
+     */
+    public int getTotalSets() {
+        return m_instance.getNumSets();
+    }
+
+    private final class CandidateIterator implements Iterator<ModelCandidate> {
+        private final int m_to;
+        // The gains of all sets while iterating, null to look up the gain of each set
+        private final int[] m_gains;
+        private int m_nextIdx;
+
+        CandidateIterator(final int from, final int to) {
+            // Every set gets a candidate, so compute all gains at once. Ranges only look up their own sets,
+            // so concurrent range workers of one model do not all compute the gains of every set.
+            m_gains = from == 0 && to == m_instance.getNumSets() ? gains() : null;
+            m_to = to;
+            m_nextIdx = m_usedSets.nextClearBit(from);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return m_nextIdx < m_to;
+        }
+
+        @Override
+        public ModelCandidate next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int usedSet = m_nextIdx;
+            final int score = m_gains != null
+                    ? m_instance.getUniverseSize() - m_coveredCount - m_gains[usedSet] : scoreWith(usedSet);
+            ModelCandidate model = new ModelCandidate(SetCoveringModel.this, usedSet, score);
+            m_nextIdx = m_usedSets.nextClearBit(m_nextIdx + 1);
+            return model;
+        }
+    }
+
+    private static final class CoverSignature {
+        private final MinHash m_minHash;
+        private final int[] m_values;
+
+        CoverSignature(final MinHash minHash, final int[] values) {
+            m_minHash = minHash;
+            m_values = values;
+        }
+    }
+}
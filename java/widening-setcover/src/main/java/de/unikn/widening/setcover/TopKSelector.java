@@ -2,14 +2,18 @@ package de.unikn.widening.setcover;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
-import java.util.TreeSet;
 
 import de.unikn.widening.base.Candidate;
-import de.unikn.widening.base.WideningSelector;
+import de.unikn.widening.base.MergeableSelector;
+import de.unikn.widening.base.collections.BoundedLongKeyHeap;
 
-public class TopKSelector implements WideningSelector<Integer, SetCoveringModel, ModelCandidate> {
+/**
+ * Selects the k candidates with the best scores, ties broken by the lowest index of their used sets.
+ * Of candidates equal in both only the first one is kept. The candidates are kept in a heap keyed by score and
+ * least set packed into a long, so a candidate worse than the k-th is rejected by a single comparison.
+ */
+public class TopKSelector implements MergeableSelector<Integer, SetCoveringModel, ModelCandidate, TopKSelector.State> {
 
     private int m_k;
 
@@ -19,33 +23,14 @@ public class TopKSelector implements WideningSelector<Integer, SetCoveringModel,
 
     private Iterable<ModelCandidate> select(
             final Iterable<ModelCandidate> models) {
-        final TreeSet<ModelCandidate> ts = new TreeSet<>((a,b) -> {
-            int i = Integer.compare(a.getScore(), b.getScore());
-            return i == 0 ? Integer.compare(a.leastSet(), b.leastSet()) : i;
-        });
-
-        final Iterator<ModelCandidate> iter = models.iterator();
-        while (ts.size() < m_k && iter.hasNext()) {
-            final ModelCandidate model = iter.next();
-            if (model.isDone()) {
-                return Collections.singleton(model);
+        final State state = createState();
+        for (final ModelCandidate model : models) {
+            accumulate(state, model);
+            if (state.m_done != null) {
+                break;
             }
-            ts.add(model);
         }
-
-        while (iter.hasNext()) {
-            final Iterator<ModelCandidate> it = ts.descendingIterator();
-            final ModelCandidate model = iter.next();
-            final ModelCandidate last = it.next();
-            if (model.isDone()) {
-                return Collections.singleton(model);
-            }
-            if (last.getScore().compareTo(model.getScore()) > 0) {
-                it.remove();
-                ts.add(model);
-            }
-        }
-        return ts;
+        return finish(state);
     }
 
 	@Override
@@ -62,4 +47,64 @@ public class TopKSelector implements WideningSelector<Integer, SetCoveringModel,
 		}
 		return out;
 	}
+
+    @Override
+    public State createState() {
+        return new State(m_k);
+    }
+
+    @Override
+    public void accumulate(final State state, final ModelCandidate model) {
+        if (state.m_done != null) {
+            return;
+        }
+        if (model.isDone()) {
+            state.m_done = model;
+            return;
+        }
+        final BoundedLongKeyHeap<ModelCandidate> heap = state.m_selected;
+        final int score = model.getScoreValue();
+        // Only a better score replaces the worst candidate
+        if (heap.isFull() && (heap.size() == 0 || (int) (heap.peekKey() >>> 32) <= score)) {
+            return;
+        }
+        final long key = (long) score << 32 | model.leastSet();
+        for (int i = 0; i < heap.size(); i++) {
+            if (heap.keyAt(i) == key) {
+                return;
+            }
+        }
+        heap.add(key, model);
+    }
+
+    @Override
+    public State merge(final State left, final State right) {
+        if (left.m_done != null) {
+            return left;
+        }
+        if (right.m_done != null) {
+            return right;
+        }
+        for (final ModelCandidate model : right.m_selected.toSortedList()) {
+            accumulate(left, model);
+        }
+        return left;
+    }
+
+    @Override
+    public Iterable<ModelCandidate> finish(final State state) {
+        return state.m_done != null ? Collections.singleton(state.m_done) : state.m_selected.toSortedList();
+    }
+
+    /**
+     * The k best candidates seen so far, or a finished candidate if one was seen.
+     */
+    public static final class State {
+        private final BoundedLongKeyHeap<ModelCandidate> m_selected;
+        private ModelCandidate m_done;
+
+        private State(final int k) {
+            m_selected = new BoundedLongKeyHeap<>(k);
+        }
+    }
 }
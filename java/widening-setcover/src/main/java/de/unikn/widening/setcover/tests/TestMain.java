@@ -9,15 +9,22 @@ import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import de.unikn.widening.base.execution.Incumbent;
+import de.unikn.widening.base.execution.WideningBudget;
+import de.unikn.widening.base.execution.WideningCalculator;
 import de.unikn.widening.setcover.BucketSelector;
 import de.unikn.widening.setcover.DiverseTopKSelector;
+import de.unikn.widening.setcover.GreedySetCover;
+import de.unikn.widening.setcover.LazyGreedyRefiner;
 import de.unikn.widening.setcover.ModelCandidate;
+import de.unikn.widening.setcover.SetCoverReduction;
 import de.unikn.widening.setcover.SetCoverRefiner;
 import de.unikn.widening.setcover.SetCoveringModel;
 import de.unikn.widening.setcover.TopKSelector;
 import de.unikn.widening.test.framework.PrintListener;
 import de.unikn.widening.test.framework.SelectorTestSubject;
 import de.unikn.widening.test.framework.Test;
+import de.unikn.widening.test.framework.TestSubject;
 
 public class TestMain {
 
@@ -46,15 +53,45 @@ public class TestMain {
             }
         }
 
+        // Widen the reduced problem, the forced sets are part of every cover
+        final SetCoverReduction reduction = SetCoverReduction.reduce(sets);
+        final BitSet[] reducedSets = reduction.getSets();
+        final int forced = reduction.getForcedSets().cardinality();
+
+        // The greedy cover is the baseline every subject should beat
+        final SetCoveringModel greedy = GreedySetCover.solve(
+                SetCoveringModel.empty(reducedSets, reduction.getUniverseSize()));
+        System.out.println("Greedy: " + (greedy.getNumSets() + forced));
+
         final ExecutorService pool = Executors.newFixedThreadPool(8);
         Test<Integer, SetCoveringModel> test = Test.builder(SetCoveringModel.class)
                 .modelSupplier(() -> {
-                    Collections.shuffle(Arrays.asList(sets), RNG);
-                    return SetCoveringModel.empty(sets, 507);
+                    // Shuffles a copy, the reduction maps covers back by the order of its own sets
+                    final BitSet[] shuffled = reducedSets.clone();
+                    Collections.shuffle(Arrays.asList(shuffled), RNG);
+                    return SetCoveringModel.empty(shuffled, reduction.getUniverseSize());
                 })
                 // Top-k
                 .addSubject(new SelectorTestSubject<Integer, SetCoveringModel, ModelCandidate>("Top-k",
                                                 new TopKSelector(K), REFINER))
+                // Top-k seeded with the greedy cover, giving up once it cannot find a smaller one
+                .addSubject(new TestSubject<SetCoveringModel>("Top-k beating greedy") {
+                    @Override
+                    public SetCoveringModel optimize(final SetCoveringModel start) {
+                        final Incumbent<Integer, SetCoveringModel> incumbent = GreedySetCover.incumbent(start);
+                        final WideningBudget budget = GreedySetCover.budgetToBeat(WideningBudget.unlimited(), start,
+                                incumbent.get().get());
+                        return new WideningCalculator<>(REFINER, new TopKSelector(K))
+                                .run(start, budget, incumbent).orElse(null);
+                    }
+                })
+                // Top-k refining lazily
+                .addSubject(new SelectorTestSubject<Integer, SetCoveringModel, ModelCandidate>("Lazy Top-k",
+                                                new TopKSelector(K), new LazyGreedyRefiner(K)))
+                // Top-k branching on the rarest uncovered element
+                .addSubject(new SelectorTestSubject<Integer, SetCoveringModel, ModelCandidate>("Rarest Top-k",
+                                                new TopKSelector(K),
+                                                new SetCoverRefiner(SetCoverRefiner.Branching.RAREST_ELEMENT)))
                 // Diverse Top-k
                 .addSubject(new SelectorTestSubject<Integer, SetCoveringModel, ModelCandidate>("Diverse Top-k",
                                                 new DiverseTopKSelector(K, LOCAL_THRESHOLD, GLOBAL_THRESHOLD), REFINER))
@@ -66,7 +103,8 @@ public class TestMain {
                 .build();
 
         test.printHeader();
-        test.addResultListener(new PrintListener<Integer, SetCoveringModel>(m -> Integer.toString(m.getNumSets())));
+        test.addResultListener(new PrintListener<Integer, SetCoveringModel>(
+                m -> Integer.toString(m.getNumSets() + forced)));
 
         test.run();
     }
@@ -0,0 +1,60 @@
+package de.unikn.widening.setcover;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GainUpdateTest {
+
+    private static final int UNIVERSE = 300;
+
+    @Test
+    public void updatedGainsEqualComputedGains() {
+        final Random rng = new Random(0);
+        final SetCoverInstance instance = new SetCoverInstance(
+                SetCoveringModelTest.randomSets(rng, 400, UNIVERSE), UNIVERSE);
+        final SetCoveringModel root = SetCoveringModel.empty(instance);
+        // Known gains of the root let all descendants update them instead
+        root.gains();
+        for (int walk = 0; walk < 10; walk++) {
+            SetCoveringModel model = root;
+            // Longer than a chain of updates, so the gains get materialized on the way
+            for (int level = 0; level < 3 * GainUpdate.MAX_DEPTH && model.getBranchingSets().length > 0; level++) {
+                model = model.refine(unusedSet(rng, model));
+                final int[] expected = instance.gains(model.getCovered().toLongArray());
+                assertArrayEquals(expected, model.gains());
+                for (int set = 0; set < expected.length; set++) {
+                    assertEquals(model.getScore() - expected[set], model.scoreWith(set));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void chainedUpdatesEqualAppliedDecrements() {
+        final int[] base = {5, 4, 3, 2, 1};
+        final GainUpdate first = new GainUpdate(base, null, 2);
+        first.decrement(1);
+        first.decrement(3);
+        final GainUpdate second = new GainUpdate(first.getBaseGains(), first, 2);
+        second.decrement(1);
+        second.decrement(4);
+        assertArrayEquals(new int[] {5, 2, 3, 1, 0}, second.apply());
+        for (int set = 0; set < base.length; set++) {
+            assertEquals(second.apply()[set], second.gain(set));
+        }
+        // The gains the chain starts from are not changed
+        assertArrayEquals(new int[] {5, 4, 3, 2, 1}, base);
+    }
+
+    private static int unusedSet(final Random rng, final SetCoveringModel model) {
+        int set;
+        do {
+            set = rng.nextInt(model.getTotalSets());
+        } while (model.getUsedSetBitmap().contains(set) || model.scoreWith(set) == model.getScore());
+        return set;
+    }
+}
@@ -0,0 +1,104 @@
+package de.unikn.widening.setcover;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.unikn.widening.base.execution.Incumbent;
+import de.unikn.widening.base.execution.WideningBudget;
+import de.unikn.widening.base.execution.WideningCalculator;
+
+public class GreedySetCoverTest {
+
+    private static final int UNIVERSE = 60;
+
+    @Test
+    public void matchesNaiveGreedy() {
+        final Random rng = new Random(0);
+        for (int run = 0; run < 50; run++) {
+            final BitSet[] sets = coveringSets(rng, 40);
+            final SetCoveringModel empty = SetCoveringModel.empty(sets, UNIVERSE);
+            for (final SetCoveringModel start : new SetCoveringModel[] {empty, empty.refine(run % sets.length)}) {
+                final SetCoveringModel greedy = GreedySetCover.solve(start);
+                assertTrue(greedy.isDone());
+                final BitSet added = greedy.getUsedSets();
+                added.andNot(start.getUsedSets());
+                assertTrue("Not a greedy cover: " + added, isNaiveGreedy(sets, added, start.getCovered()));
+            }
+        }
+    }
+
+    @Test
+    public void incumbentKeepsFewestSets() {
+        final BitSet[] sets = coveringSets(new Random(1), 200);
+        final SetCoveringModel start = SetCoveringModel.empty(sets, UNIVERSE);
+        final Incumbent<Integer, SetCoveringModel> incumbent = GreedySetCover.incumbent(start);
+        final SetCoveringModel greedy = incumbent.get().get();
+        final int[] all = new int[sets.length];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        // Every cover scores 0, so only the number of sets tells them apart
+        assertFalse(incumbent.offer(start.refineAll(all)));
+
+        final WideningBudget budget = GreedySetCover.budgetToBeat(WideningBudget.unlimited(), start, greedy);
+        assertTrue(budget.getMaxLevels() < greedy.getNumSets());
+        final SetCoveringModel result = new WideningCalculator<>(new SetCoverRefiner(), new TopKSelector(1))
+                .run(start, budget, incumbent).get();
+        assertTrue(result.isDone());
+        assertTrue(result.getNumSets() <= greedy.getNumSets());
+        assertSame(result, incumbent.get().get());
+    }
+
+    /**
+     * @return random sets covering the universe
+     */
+    private static BitSet[] coveringSets(final Random rng, final int numSets) {
+        final BitSet[] sets = SetCoveringModelTest.randomSets(rng, numSets, UNIVERSE);
+        final BitSet covered = new BitSet();
+        for (final BitSet set : sets) {
+            covered.or(set);
+        }
+        for (int e = covered.nextClearBit(0); e < UNIVERSE; e = covered.nextClearBit(e + 1)) {
+            sets[rng.nextInt(numSets)].set(e);
+        }
+        return sets;
+    }
+
+    /**
+     * Checks whether a naive greedy, rescanning all sets for the largest gain, can add exactly the given sets
+     * when breaking ties between sets of equal gain in some order.
+     */
+    private static boolean isNaiveGreedy(final BitSet[] sets, final BitSet added, final BitSet covered) {
+        if (added.isEmpty()) {
+            return covered.cardinality() == UNIVERSE;
+        }
+        int maxGain = 0;
+        for (final BitSet set : sets) {
+            maxGain = Math.max(maxGain, gain(set, covered));
+        }
+        for (int s = added.nextSetBit(0); s >= 0; s = added.nextSetBit(s + 1)) {
+            if (gain(sets[s], covered) == maxGain) {
+                final BitSet rest = (BitSet) added.clone();
+                rest.clear(s);
+                final BitSet next = (BitSet) covered.clone();
+                next.or(sets[s]);
+                if (isNaiveGreedy(sets, rest, next)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int gain(final BitSet set, final BitSet covered) {
+        final BitSet uncovered = (BitSet) set.clone();
+        uncovered.andNot(covered);
+        return uncovered.cardinality();
+    }
+}
@@ -0,0 +1,82 @@
+package de.unikn.widening.setcover;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LazyGreedyRefinerTest {
+
+    private static final int K = 8;
+    private static final int UNIVERSE = 500;
+
+    @Test
+    public void matchesFullRefinementWithTopK() {
+        final SetCoveringModel start = SetCoveringModel.empty(
+                SetCoveringModelTest.randomSets(new Random(0), 300, UNIVERSE), UNIVERSE);
+        // Without used sets every candidate has its own least set, so the top k does not drop any
+        assertEquals(keys(new TopKSelector(K).selectLocal(new SetCoverRefiner().refine(start))),
+                keys(new LazyGreedyRefiner(K).refine(start)));
+    }
+
+    @Test
+    public void keepsTheBestGainsOverManyLevels() {
+        final Random rng = new Random(0);
+        final SetCoveringModel start = SetCoveringModel.empty(SetCoveringModelTest.randomSets(rng, 300, UNIVERSE),
+                UNIVERSE);
+        final LazyGreedyRefiner lazy = new LazyGreedyRefiner(K);
+        final SetCoverRefiner full = new SetCoverRefiner();
+        List<SetCoveringModel> frontier = Collections.singletonList(start);
+        // Deep enough for the tightened bounds to be flattened into the shared ones
+        int level = 0;
+        for (; level < 40 && !frontier.isEmpty(); level++) {
+            final List<SetCoveringModel> next = new ArrayList<>();
+            for (final SetCoveringModel model : frontier) {
+                final List<ModelCandidate> candidates = list(lazy.refine(model));
+                final List<Integer> best = scores(full.refine(model));
+                assertEquals(best.subList(0, Math.min(K, best.size())), scores(candidates));
+                for (final ModelCandidate c : candidates) {
+                    // Gains equal to the k-th best may be chosen from any set, but the gains must be right
+                    assertEquals(model.scoreWith(c.getAddedSetIndex()), c.getScoreValue());
+                }
+                // Children of the same parent share its bounds
+                for (int i = 0; i < 2 && i < candidates.size(); i++) {
+                    final SetCoveringModel child = candidates.get(rng.nextInt(candidates.size())).create();
+                    if (!child.isDone()) {
+                        next.add(child);
+                    }
+                }
+            }
+            frontier = next.size() > 4 ? next.subList(0, 4) : next;
+        }
+        assertEquals(40, level);
+    }
+
+    private static List<ModelCandidate> list(final Iterable<ModelCandidate> candidates) {
+        final List<ModelCandidate> out = new ArrayList<>();
+        candidates.forEach(out::add);
+        return out;
+    }
+
+    private static List<String> keys(final Iterable<ModelCandidate> candidates) {
+        final List<String> out = new ArrayList<>();
+        for (final ModelCandidate c : candidates) {
+            out.add(c.getAddedSetIndex() + ":" + c.getScoreValue());
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    private static List<Integer> scores(final Iterable<ModelCandidate> candidates) {
+        final List<Integer> out = new ArrayList<>();
+        for (final ModelCandidate c : candidates) {
+            out.add(c.getScoreValue());
+        }
+        Collections.sort(out);
+        return out;
+    }
+}
@@ -0,0 +1,184 @@
+package de.unikn.widening.setcover;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import de.unikn.widening.base.MergeableSelector;
+
+/**
+ * Checks that merging the states of parts of the candidates selects the same candidates as accumulating all
+ * of them in one state, and that concurrent accumulation selects the same as the sequential selectors.
+ */
+public class MergeableSelectorTest {
+
+    private static final int K = 16;
+    private static final int THREADS = 8;
+
+    @Test
+    public void topKMergesLikeSequential() {
+        assertMergesLikeSequential(new TopKSelector(K), candidates(1));
+    }
+
+    @Test
+    public void bucketSelectorMergesLikeSequential() {
+        assertMergesLikeSequential(new BucketSelector(K, BucketSelector.HASH_BUCKET_ASSIGNER), candidates(2));
+    }
+
+    @Test
+    public void concurrentBucketSelectorMergesLikeSequential() {
+        assertMergesLikeSequential(new ConcurrentBucketSelector(K, BucketSelector.HASH_BUCKET_ASSIGNER),
+                candidates(3));
+    }
+
+    @Test
+    public void concurrentBucketSelectorSelectsLikeBucketSelector() throws Exception {
+        final List<ModelCandidate> candidates = candidates(4);
+        final Iterable<ModelCandidate> expected =
+                new BucketSelector(K, BucketSelector.HASH_BUCKET_ASSIGNER).finish(accumulate(
+                        new BucketSelector(K, BucketSelector.HASH_BUCKET_ASSIGNER), candidates));
+        for (int round = 0; round < 5; round++) {
+            Collections.shuffle(candidates, new Random(round));
+            assertEquals(keys(expected), keys(accumulateConcurrently(candidates)));
+        }
+    }
+
+    @Test
+    public void concurrentBucketSelectorOrdersLargeSetIndices() throws Exception {
+        // More sets than fit into 20 bits, all candidates add one of the sets beyond
+        final int numSets = (1 << 20) + 4096;
+        final int universe = 64;
+        final BitSet[] sets = new BitSet[numSets];
+        for (int i = 0; i < numSets; i++) {
+            sets[i] = new BitSet(universe);
+            sets[i].set(i % universe);
+        }
+        final List<ModelCandidate> candidates = new ArrayList<>();
+        for (final ModelCandidate c : SetCoveringModel.empty(sets, universe).candidates(1 << 20, numSets)) {
+            candidates.add(c);
+        }
+        Collections.reverse(candidates);
+
+        final Iterable<ModelCandidate> expected =
+                new BucketSelector(K, BucketSelector.HASH_BUCKET_ASSIGNER).finish(accumulate(
+                        new BucketSelector(K, BucketSelector.HASH_BUCKET_ASSIGNER), candidates));
+        assertEquals(keys(expected), keys(accumulateConcurrently(candidates)));
+    }
+
+    private static <A> void assertMergesLikeSequential(final MergeableSelector<Integer, SetCoveringModel,
+            ModelCandidate, A> selector, final List<ModelCandidate> candidates) {
+        final List<ModelCandidate> expected = list(selector.finish(accumulate(selector, candidates)));
+        for (final int parts : new int[] {2, 3, 7, 32}) {
+            // Merging neighbors keeps the order of the candidates, so even ties are decided the same way
+            final List<A> states = new ArrayList<>();
+            for (int p = 0; p < parts; p++) {
+                states.add(accumulate(selector,
+                        candidates.subList(candidates.size() * p / parts, candidates.size() * (p + 1) / parts)));
+            }
+            while (states.size() > 1) {
+                final List<A> merged = new ArrayList<>();
+                for (int i = 0; i < states.size(); i += 2) {
+                    merged.add(i + 1 < states.size() ? selector.merge(states.get(i), states.get(i + 1))
+                            : states.get(i));
+                }
+                states.clear();
+                states.addAll(merged);
+            }
+            final List<ModelCandidate> actual = list(selector.finish(states.get(0)));
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame(expected.get(i), actual.get(i));
+            }
+        }
+    }
+
+    private static <A> A accumulate(final MergeableSelector<Integer, SetCoveringModel, ModelCandidate, A> selector,
+            final List<ModelCandidate> candidates) {
+        final A state = selector.createState();
+        for (final ModelCandidate c : candidates) {
+            selector.accumulate(state, c);
+        }
+        return state;
+    }
+
+    private static List<ModelCandidate> accumulateConcurrently(final List<ModelCandidate> candidates)
+            throws Exception {
+        final ConcurrentBucketSelector selector = new ConcurrentBucketSelector(K, BucketSelector.HASH_BUCKET_ASSIGNER);
+        final ConcurrentBucketSelector.State state = selector.createState();
+        final ExecutorService exec = Executors.newFixedThreadPool(THREADS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final List<ModelCandidate> part = candidates.subList(candidates.size() * t / THREADS,
+                        candidates.size() * (t + 1) / THREADS);
+                tasks.add(exec.submit(() -> {
+                    start.await();
+                    for (final ModelCandidate c : part) {
+                        selector.accumulate(state, c);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> task : tasks) {
+                task.get();
+            }
+        } finally {
+            exec.shutdown();
+        }
+        return list(selector.finish(state));
+    }
+
+    /**
+     * The candidates of a few models of a random instance, so candidates of different parents share scores
+     * and least sets.
+     */
+    private static List<ModelCandidate> candidates(final long seed) {
+        final Random rng = new Random(seed);
+        final int universe = 200;
+        final BitSet[] sets = new BitSet[2000];
+        for (int i = 0; i < sets.length; i++) {
+            sets[i] = new BitSet(universe);
+            for (int j = 2 + rng.nextInt(8); j > 0; j--) {
+                sets[i].set(rng.nextInt(universe));
+            }
+        }
+        final SetCoveringModel start = SetCoveringModel.empty(sets, universe);
+        final List<ModelCandidate> candidates = new ArrayList<>();
+        for (int m = 0; m < 4; m++) {
+            final SetCoveringModel parent = start.refine(rng.nextInt(sets.length)).refine(rng.nextInt(sets.length));
+            for (final ModelCandidate c : parent) {
+                candidates.add(c);
+            }
+        }
+        return candidates;
+    }
+
+    private static List<ModelCandidate> list(final Iterable<ModelCandidate> candidates) {
+        final List<ModelCandidate> out = new ArrayList<>();
+        for (final ModelCandidate c : candidates) {
+            out.add(c);
+        }
+        return out;
+    }
+
+    private static List<String> keys(final Iterable<ModelCandidate> candidates) {
+        final List<String> out = new ArrayList<>();
+        for (final ModelCandidate c : candidates) {
+            out.add(c.getScoreValue() + "/" + c.leastSet());
+        }
+        return out;
+    }
+}
@@ -0,0 +1,49 @@
+package de.unikn.widening.setcover;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import de.unikn.widening.base.execution.WideningBudget;
+import de.unikn.widening.base.execution.WideningCalculator;
+
+public class PackedTopKWideningTest {
+
+    private static final int K = 4;
+    private static final int UNIVERSE = 100;
+
+    @Test
+    public void selectsLikeTheCalculator() throws Exception {
+        final ExecutorService exec = Executors.newFixedThreadPool(3);
+        try {
+            for (int seed = 0; seed < 5; seed++) {
+                final SetCoveringModel start = SetCoveringModel.empty(
+                        SetCoveringModelTest.randomSets(new Random(seed), 500, UNIVERSE), UNIVERSE);
+                final SetCoveringModel expected = new WideningCalculator<>(new SetCoverRefiner(),
+                        new TopKSelector(K)).run(start).get();
+                assertEquals(expected.getUsedSetBitmap(), new PackedTopKWidening(K).run(start).get()
+                        .getUsedSetBitmap());
+                assertEquals(expected.getUsedSetBitmap(), new PackedTopKWidening(K, exec).run(start).get()
+                        .getUsedSetBitmap());
+            }
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stopsAtTheLevelLimit() throws Exception {
+        final SetCoveringModel start = SetCoveringModel.empty(
+                SetCoveringModelTest.randomSets(new Random(0), 500, UNIVERSE), UNIVERSE);
+        final SetCoveringModel best = new PackedTopKWidening(K).run(start,
+                WideningBudget.builder().maxLevels(2).build()).get();
+        // The best model of the last level reached
+        assertEquals(2, best.getNumSets());
+        assertTrue(best.getScore() > 0);
+    }
+}
@@ -0,0 +1,98 @@
+package de.unikn.widening.setcover;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SetCoverReductionTest {
+
+    @Test
+    public void reducesUntilNoReductionApplies() {
+        final SetCoverReduction reduction = SetCoverReduction.reduce(
+                new BitSet[] {bits(0, 1), bits(2, 3, 4), bits(3, 4), bits(4, 5), bits(2, 5)}, 6);
+        // Set 0 is forced by element 0. Then set 2 is dominated by set 1, so element 3 forces set 1.
+        // Sets 3 and 4 are equal on the remaining element 5, so set 3 is kept and forced.
+        assertEquals(bits(0, 1, 3), reduction.getForcedSets());
+        assertEquals(0, reduction.getSets().length);
+        assertEquals(0, reduction.getUniverseSize());
+        assertEquals(bits(0, 1, 3), reduction.toOriginal(new BitSet()));
+    }
+
+    @Test
+    public void mapsRemainingSetsBack() {
+        // Element 0 dominates element 1, and set 2 is dominated by set 1
+        final BitSet[] sets = {bits(0, 1, 2), bits(0, 1, 3), bits(3), bits(2, 3)};
+        final SetCoverReduction reduction = SetCoverReduction.reduce(sets, 4);
+        assertEquals(new BitSet(), reduction.getForcedSets());
+        assertEquals(3, reduction.getUniverseSize());
+        assertEquals(3, reduction.getSets().length);
+        assertEquals(bits(0, 1, 3), reduction.toOriginal(bits(0, 1, 2)));
+        assertEquals(3, reduction.getOriginalIndex(2));
+    }
+
+    @Test
+    public void keepsTheSizeOfTheSmallestCover() {
+        final Random rng = new Random(0);
+        for (int n = 0; n < 200; n++) {
+            final int universe = 4 + rng.nextInt(8);
+            final BitSet[] sets = new BitSet[3 + rng.nextInt(9)];
+            for (int i = 0; i < sets.length; i++) {
+                sets[i] = new BitSet();
+                for (int j = 1 + rng.nextInt(4); j > 0; j--) {
+                    sets[i].set(rng.nextInt(universe));
+                }
+            }
+            if (!covers(sets, all(sets.length), universe)) {
+                continue;
+            }
+            final SetCoverReduction reduction = SetCoverReduction.reduce(sets, universe);
+            final BitSet[] reduced = reduction.getSets();
+            final BitSet smallest = smallestCover(reduced, reduction.getUniverseSize());
+            final BitSet original = reduction.toOriginal(smallest);
+            assertTrue(covers(sets, original, universe));
+            assertEquals(smallestCover(sets, universe).cardinality(), original.cardinality());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUncoverableElements() {
+        SetCoverReduction.reduce(new BitSet[] {bits(0, 1), bits(1)}, 3);
+    }
+
+    private static BitSet smallestCover(final BitSet[] sets, final int universe) {
+        BitSet best = all(sets.length);
+        for (long mask = 0; mask < 1L << sets.length; mask++) {
+            final BitSet used = BitSet.valueOf(new long[] {mask});
+            if (used.cardinality() < best.cardinality() && covers(sets, used, universe)) {
+                best = used;
+            }
+        }
+        return best;
+    }
+
+    private static boolean covers(final BitSet[] sets, final BitSet used, final int universe) {
+        final BitSet covered = new BitSet();
+        for (int i = used.nextSetBit(0); i >= 0; i = used.nextSetBit(i + 1)) {
+            covered.or(sets[i]);
+        }
+        return covered.cardinality() >= universe && covered.nextClearBit(0) >= universe;
+    }
+
+    private static BitSet all(final int length) {
+        final BitSet bits = new BitSet();
+        bits.set(0, length);
+        return bits;
+    }
+
+    private static BitSet bits(final int... indices) {
+        final BitSet bits = new BitSet();
+        for (final int i : indices) {
+            bits.set(i);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,128 @@
+package de.unikn.widening.setcover;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import de.unikn.widening.setcover.SetCoverRefiner.Branching;
+
+public class SetCoverRefinerTest {
+
+    @Test
+    public void branchesOnTheRarestUncoveredElement() {
+        final BitSet[] sets = SetCoveringModelTest.randomSets(new Random(0), 200, 100);
+        final SetCoverRefiner refiner = new SetCoverRefiner(Branching.RAREST_ELEMENT);
+        SetCoveringModel model = SetCoveringModel.empty(sets, 100);
+        while (!model.isDone() && refiner.size(model) > 0) {
+            final BitSet covered = model.getCovered();
+            int fewest = Integer.MAX_VALUE;
+            for (int e = 0; e < 100; e++) {
+                final int count = containing(sets, e).size();
+                if (!covered.get(e) && count > 0) {
+                    fewest = Math.min(fewest, count);
+                }
+            }
+            final List<Integer> branched = new ArrayList<>();
+            for (final ModelCandidate c : refiner.refine(model)) {
+                branched.add(c.getAddedSetIndex());
+                assertEquals(model.scoreWith(c.getAddedSetIndex()), c.getScoreValue());
+            }
+            // The sets of one of the rarest elements, split into ranges the same way
+            assertEquals(fewest, branched.size());
+            assertTrue(sharedElementIsUncovered(sets, covered, branched));
+            final List<Integer> ranges = new ArrayList<>();
+            for (final ModelCandidate c : refiner.refine(model, 0, fewest / 2)) {
+                ranges.add(c.getAddedSetIndex());
+            }
+            for (final ModelCandidate c : refiner.refine(model, fewest / 2, fewest)) {
+                ranges.add(c.getAddedSetIndex());
+            }
+            assertEquals(branched, ranges);
+            model = model.refine(branched.get(0));
+        }
+    }
+
+    @Test
+    public void reachesTheSmallestCovers() {
+        final Random rng = new Random(0);
+        for (int n = 0; n < 50; n++) {
+            final int universe = 6 + rng.nextInt(6);
+            final BitSet[] sets = new BitSet[4 + rng.nextInt(7)];
+            for (int i = 0; i < sets.length; i++) {
+                sets[i] = new BitSet();
+                for (int j = 1 + rng.nextInt(4); j > 0; j--) {
+                    sets[i].set(rng.nextInt(universe));
+                }
+            }
+            final SetCoveringModel start = SetCoveringModel.empty(sets, universe);
+            assertEquals(smallestCover(start, new SetCoverRefiner()),
+                    smallestCover(start, new SetCoverRefiner(Branching.RAREST_ELEMENT)));
+        }
+    }
+
+    /**
+     * @return the number of sets of the smallest cover found by exhaustive search, -1 if there is none
+     */
+    private static int smallestCover(final SetCoveringModel start, final SetCoverRefiner refiner) {
+        final int universe = start.getInstance().getUniverseSize();
+        final BitSet coverable = new BitSet();
+        for (int i = 0; i < start.getTotalSets(); i++) {
+            coverable.or(start.getInstance().getSet(i));
+        }
+        if (coverable.cardinality() < universe) {
+            return -1;
+        }
+        List<SetCoveringModel> level = new ArrayList<>();
+        level.add(start);
+        for (int sets = 0; !level.isEmpty(); sets++) {
+            final Set<BitSet> seen = new HashSet<>();
+            final List<SetCoveringModel> next = new ArrayList<>();
+            for (final SetCoveringModel model : level) {
+                if (model.isDone()) {
+                    return sets;
+                }
+                for (final ModelCandidate c : refiner.refine(model)) {
+                    final SetCoveringModel child = c.create();
+                    if (seen.add(child.getUsedSets())) {
+                        next.add(child);
+                    }
+                }
+            }
+            level = next;
+        }
+        return -1;
+    }
+
+    private static List<Integer> containing(final BitSet[] sets, final int element) {
+        final List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < sets.length; i++) {
+            if (sets[i].get(element)) {
+                out.add(i);
+            }
+        }
+        return out;
+    }
+
+    private static boolean sharedElementIsUncovered(final BitSet[] sets, final BitSet covered,
+            final List<Integer> branched) {
+        final BitSet shared = (BitSet) sets[branched.get(0)].clone();
+        for (final int i : branched) {
+            shared.and(sets[i]);
+        }
+        shared.andNot(covered);
+        for (int e = shared.nextSetBit(0); e >= 0; e = shared.nextSetBit(e + 1)) {
+            if (containing(sets, e).equals(branched)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package de.unikn.widening.setcover;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+import de.unikn.widening.base.collections.IntBitmapFactory;
+import de.unikn.widening.setcover.SetCoverInstance.HashMethod;
+
+public class SetCoveringModelTest {
+
+    @Test
+    public void rangesSplitTheCandidates() {
+        final SetCoveringModel start = SetCoveringModel.empty(randomSets(new Random(0), 500, 100), 100);
+        final SetCoveringModel child = start.refine(3).refine(70);
+        for (final SetCoveringModel model : new SetCoveringModel[] {start, child}) {
+            final List<String> expected = keys(model);
+            for (final int parts : new int[] {1, 2, 7, 500}) {
+                final List<String> actual = new ArrayList<>();
+                for (int p = 0; p < parts; p++) {
+                    actual.addAll(keys(model.candidates(500 * p / parts, 500 * (p + 1) / parts)));
+                }
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void instancesHashTheirCandidates() {
+        final BitSet[] sets = randomSets(new Random(0), 50, 100);
+        final SetCoveringModel zobrist = SetCoveringModel.empty(new SetCoverInstance(sets, 100)).refine(7);
+        final SetCoveringModel crc = SetCoveringModel.empty(new SetCoverInstance(sets, 100, 0,
+                IntBitmapFactory.PERSISTENT, HashMethod.CRC32)).refine(7);
+        // Both instances are used at once, each hashing its own candidates
+        for (final ModelCandidate c : zobrist) {
+            assertEquals(c.create().hash(), c.hash());
+        }
+        for (final ModelCandidate c : crc) {
+            final CRC32 expected = new CRC32();
+            expected.update(c.create().getUsedSets().toByteArray());
+            assertEquals(expected.getValue(), c.hash());
+        }
+    }
+
+    static BitSet[] randomSets(final Random rng, final int numSets, final int universe) {
+        final BitSet[] sets = new BitSet[numSets];
+        for (int i = 0; i < numSets; i++) {
+            sets[i] = new BitSet(universe);
+            for (int j = 1 + rng.nextInt(8); j > 0; j--) {
+                sets[i].set(rng.nextInt(universe));
+            }
+        }
+        return sets;
+    }
+
+    private static List<String> keys(final Iterable<ModelCandidate> candidates) {
+        final List<String> out = new ArrayList<>();
+        for (final ModelCandidate c : candidates) {
+            out.add(c.getAddedSetIndex() + ":" + c.getScoreValue());
+        }
+        return out;
+    }
+}